@@ -0,0 +1,148 @@
+package com.devone.watchface.printivo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Measures the platform independent part of a frame: splitting the time into fields, formatting
+ * it and recording the draw commands, then replaying them into a target that only consumes them.
+ * <p/>
+ * Run with the gc profiler (the default for ./gradlew :core:jmh) to get bytes allocated per frame
+ * from gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+public class FrameBenchmark {
+
+    private static final Palette PALETTE = new Palette(
+            0xFF857B80, 0xFF373335, 0xFFFEF039, 0xFFE92D8F, 0xFF1DB0EC, 0xFF808080, 0xFFFFFFFF);
+
+    private ClockState clock;
+    private FrameComposer composer;
+    private DrawList frame;
+    private DrawList layer;
+    private ConsumingTarget target;
+
+    private long time;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+
+        // A 320px round display at the default font scale
+        LayoutSpec spec = new LayoutSpec();
+        spec.setDisplay(320, 320, 1);
+        spec.setTextMetrics(-19.0f, 4.9f, -60.8f, -52.8f);
+        spec.setRound(true);
+
+        clock = new ClockState(TimeZone.getTimeZone("Africa/Lagos"));
+        composer = new FrameComposer(new ClockText(Locale.US), spec, PALETTE);
+        frame = new DrawList(8);
+        layer = new DrawList(8);
+        target = new ConsumingTarget(blackhole);
+
+        time = 1467590400000L;
+    }
+
+    @Benchmark
+    public void interactiveFrame() {
+
+        time += 1000;
+        frame(false);
+    }
+
+    /**
+     * A frame of the smooth animation, at 60 fps every one of them sweeps the decor ring
+     */
+    @Benchmark
+    public void animatedFrame() {
+
+        time += 16;
+        composer.setSweep(true);
+        frame(false);
+        composer.setSweep(false);
+    }
+
+    @Benchmark
+    public void ambientFrame() {
+
+        time += 60000;
+        frame(true);
+    }
+
+    @Benchmark
+    public void staticLayer() {
+
+        time += 86400000;
+        clock.setTime(time);
+
+        composer.composeStatic(layer, clock, false);
+        layer.replay(target);
+    }
+
+    private void frame(boolean ambient) {
+
+        clock.setTime(time);
+
+        composer.composeFrame(frame, clock, ambient);
+        frame.replay(target);
+    }
+
+
+    private static class ConsumingTarget implements DrawList.Target {
+
+        private final Blackhole blackhole;
+
+        ConsumingTarget(Blackhole blackhole) {
+
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void color(int color) {
+
+            blackhole.consume(color);
+        }
+
+        @Override
+        public void layer(int layer) {
+
+            blackhole.consume(layer);
+        }
+
+        @Override
+        public void text(int paint, char[] text, int start, int count, float x, float y,
+                         int color) {
+
+            blackhole.consume(text[start + count - 1]);
+        }
+
+        @Override
+        public void time(char[] text, int count, int amPm, float x, float baseline, int color) {
+
+            blackhole.consume(text[count - 1]);
+        }
+
+        @Override
+        public void bitmap(int bitmap, float x, float y) {
+
+            blackhole.consume(x);
+        }
+
+        @Override
+        public void circle(float cx, float cy, float radius, int color) {
+
+            blackhole.consume(radius);
+        }
+
+        @Override
+        public void arc(float cx, float cy, float radius, float width, float sweep, int color) {
+
+            blackhole.consume(sweep);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Allocation free helpers for writing text into {@code char[]} buffers.
+ * <p/>
+ * Every append method writes at {@code index} and returns the index after the last written char.
+ */
+public final class Chars {
+
+    private Chars() {}
+
+    public static int append(char[] out, int index, String text) {
+
+        int length = text.length();
+        text.getChars(0, length, out, index);
+
+        return index + length;
+    }
+
+    /**
+     * Appends as much of {@code text} as fits into {@code out}, the rest is cut
+     */
+    public static int appendClipped(char[] out, int index, CharSequence text) {
+
+        int end = Math.min(out.length, index + text.length());
+
+        for (int i = index; i < end; i++) out[i] = text.charAt(i - index);
+
+        return end;
+    }
+
+    public static int append(char[] out, int index, long value) {
+
+        if (value < 0) {
+            out[index++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) digits++;
+
+        for (int i = index + digits - 1; i >= index; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+
+        return index + digits;
+    }
+
+    /**
+     * Appends {@code nanos} as milliseconds with two decimals
+     */
+    public static int appendMillis(char[] out, int index, long nanos) {
+
+        long hundredths = (nanos + 5000) / 10000;
+
+        index = append(out, index, hundredths / 100);
+        out[index++] = '.';
+        out[index++] = (char) ('0' + (hundredths / 10) % 10);
+        out[index++] = (char) ('0' + hundredths % 10);
+
+        return index;
+    }
+
+    public static boolean equals(char[] a, int aLength, char[] b, int bLength) {
+
+        if (aLength != bLength) return false;
+
+        for (int i = 0; i < aLength; i++) {
+            if (a[i] != b[i]) return false;
+        }
+
+        return true;
+    }
+}
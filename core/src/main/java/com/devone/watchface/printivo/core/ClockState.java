@@ -0,0 +1,152 @@
+package com.devone.watchface.printivo.core;
+
+import java.util.TimeZone;
+
+/**
+ * Splits epoch millis into the local time and date fields the watch face draws.
+ * <p/>
+ * Unlike {@link java.util.Calendar} the fields are updated incrementally: within a minute only
+ * the second is recomputed; the zone offset, minute and hour are recomputed when the minute rolls
+ * over and the date fields only when the day does. Because DST transitions happen on minute
+ * boundaries re-reading the offset once a minute is enough to follow them.
+ */
+public class ClockState {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+
+    /** The epoch millis the fields were last set to */
+    public long time;
+
+    /** Hour of the day, 0 - 23 */
+    public int hourOfDay;
+    /** Hour of the half day, 0 - 11, like {@link java.util.Calendar#HOUR} */
+    public int hour;
+    public int minute;
+    public int second;
+    /** 0 for AM, 1 for PM, like {@link java.util.Calendar#AM_PM} */
+    public int amPm;
+
+    public int year;
+    /** Zero based month, like {@link java.util.Calendar#MONTH} */
+    public int month;
+    public int dayOfMonth;
+    /** Days since 1970-01-01 in the local zone, changes exactly at local midnight */
+    public long day;
+
+    private TimeZone zone;
+
+    // The utc millis range of the local minute the fields currently describe
+    private long minuteStart = Long.MAX_VALUE;
+    private long minuteEnd = Long.MIN_VALUE;
+
+    private long localHour = Long.MIN_VALUE;
+
+    private int minuteRollovers;
+    private int dayRollovers;
+
+    public ClockState(TimeZone zone) {
+
+        this.zone = zone;
+    }
+
+    /**
+     * Forgets every cached field so the next {@link #setTime(long)} recomputes them, e.g. after
+     * the zone or the system time changed.
+     */
+    public void setTimeZone(TimeZone zone) {
+
+        this.zone = zone;
+
+        minuteStart = Long.MAX_VALUE;
+        minuteEnd = Long.MIN_VALUE;
+        localHour = Long.MIN_VALUE;
+        day = Long.MIN_VALUE;
+    }
+
+    public void setTime(long millis) {
+
+        time = millis;
+
+        if (millis < minuteStart || millis >= minuteEnd) rollover(millis);
+
+        second = (int) ((millis - minuteStart) / SECOND);
+    }
+
+    /** Number of times the minute (and zone offset) had to be recomputed */
+    public int minuteRollovers() {
+
+        return minuteRollovers;
+    }
+
+    /** Number of times the date fields had to be recomputed */
+    public int dayRollovers() {
+
+        return dayRollovers;
+    }
+
+    private void rollover(long millis) {
+
+        minuteRollovers++;
+
+        int offset = zone.getOffset(millis);
+
+        long localMinute = floorDiv(millis + offset, MINUTE);
+
+        minuteStart = localMinute * MINUTE - offset;
+        minuteEnd = minuteStart + MINUTE;
+
+        minute = (int) floorMod(localMinute, 60);
+
+        long hours = floorDiv(localMinute, 60);
+        if (hours == localHour) return;
+
+        localHour = hours;
+
+        hourOfDay = (int) floorMod(hours, 24);
+        hour = hourOfDay % 12;
+        amPm = hourOfDay < 12 ? 0 : 1;
+
+        long days = floorDiv(hours, 24);
+        if (days == day) return;
+
+        day = days;
+        dayRollovers++;
+
+        civil(days);
+    }
+
+    /**
+     * Converts days since the epoch to a proleptic gregorian year, month and day.
+     * <p/>
+     * From Howard Hinnant's date algorithms, http://howardhinnant.github.io/date_algorithms.html
+     */
+    private void civil(long days) {
+
+        long z = days + 719468;
+        long era = floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+
+        dayOfMonth = (int) (doy - (153 * mp + 2) / 5 + 1);
+
+        int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+        month = m - 1;
+        year = (int) (yoe + era * 400 + (m <= 2 ? 1 : 0));
+    }
+
+    private static long floorDiv(long x, long y) {
+
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) q--;
+
+        return q;
+    }
+
+    private static long floorMod(long x, long y) {
+
+        return x - floorDiv(x, y) * y;
+    }
+}
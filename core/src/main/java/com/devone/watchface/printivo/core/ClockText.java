@@ -0,0 +1,118 @@
+package com.devone.watchface.printivo.core;
+
+import java.util.Locale;
+
+/**
+ * Formats the time and date of the watch face into reusable {@code char[]} buffers.
+ * <p/>
+ * All locale dependent strings come from {@link LocaleTables} resolved up front so that
+ * formatting a frame never allocates. The date only changes once a day, so it is only rewritten
+ * when the day, month or tables differ from the ones it was last written for. The buffers are
+ * meant to be drawn directly, e.g. with {@code Canvas.drawText(char[], int, int, float, float,
+ * Paint)}.
+ */
+public class ClockText {
+
+    /** Large enough for "HH:MM:SS" */
+    public final char[] time = new char[8];
+    public int timeLength;
+
+    /** Grows when tables with longer month names are set */
+    public char[] date;
+    public int dateLength;
+
+    private LocaleTables tables;
+
+    // What date currently holds, -1 when it has to be rewritten
+    private int dateDay = -1;
+    private int dateMonth = -1;
+
+    public ClockText(Locale locale) {
+
+        this(LocaleTables.forLocale(locale));
+    }
+
+    public ClockText(LocaleTables tables) {
+
+        setTables(tables);
+    }
+
+    /**
+     * Switches to the strings of another locale, the next {@link #setDate(int, int)} rewrites the
+     * date.
+     */
+    public void setTables(LocaleTables tables) {
+
+        this.tables = tables;
+
+        // "DD " followed by the month abbreviation
+        int length = 3 + tables.longestMonth();
+        if (date == null || date.length < length) date = new char[length];
+
+        dateDay = -1;
+        dateMonth = -1;
+    }
+
+    public LocaleTables getTables() {
+
+        return tables;
+    }
+
+    /**
+     * Writes H:MM (or H:MM:SS when seconds are shown) into {@link #time}
+     */
+    public void setTime(int hour, int minute, int second, boolean showSeconds) {
+
+        char[] digits = LocaleTables.TWO_DIGITS;
+
+        int i = 0;
+
+        if (hour >= 10) time[i++] = digits[hour * 2];
+        time[i++] = digits[hour * 2 + 1];
+
+        time[i++] = ':';
+        time[i++] = digits[minute * 2];
+        time[i++] = digits[minute * 2 + 1];
+
+        if (showSeconds) {
+            time[i++] = ':';
+            time[i++] = digits[second * 2];
+            time[i++] = digits[second * 2 + 1];
+        }
+
+        timeLength = i;
+    }
+
+    /**
+     * Writes "DD Mon" into {@link #date}, unless it already holds that date
+     *
+     * @param month zero based month as returned by {@link java.util.Calendar#MONTH}
+     * @return true if the date was rewritten
+     */
+    public boolean setDate(int dayOfMonth, int month) {
+
+        if (dayOfMonth == dateDay && month == dateMonth) return false;
+
+        dateDay = dayOfMonth;
+        dateMonth = month;
+
+        date[0] = LocaleTables.TWO_DIGITS[dayOfMonth * 2];
+        date[1] = LocaleTables.TWO_DIGITS[dayOfMonth * 2 + 1];
+        date[2] = ' ';
+
+        char[] name = tables.month(month);
+        System.arraycopy(name, 0, date, 3, name.length);
+
+        dateLength = 3 + name.length;
+
+        return true;
+    }
+
+    /**
+     * @param amPm {@link java.util.Calendar#AM} or {@link java.util.Calendar#PM}
+     */
+    public char[] ampm(int amPm) {
+
+        return tables.ampm(amPm);
+    }
+}
@@ -0,0 +1,188 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * One complication on the face: where it is, the data its provider last sent and the text,
+ * title and value that data reads as right now.
+ * <p/>
+ * Data is {@link #offer(Content) offered} from whichever thread receives it and only taken over
+ * by {@link #update(long)} on the thread that renders. An update re-reads the content when new
+ * data arrived or when the time passed the point its text may change at, and bumps
+ * {@link #version()} only if what is shown actually differs. Renderers keep their output until
+ * the version changes.
+ */
+public class ComplicationSlot {
+
+    public static final int TYPE_EMPTY = 0;
+    public static final int TYPE_TEXT = 1;
+    /** Text with a value between a minimum and a maximum, drawn as a ring around it */
+    public static final int TYPE_RANGED = 2;
+
+    /** Longer texts are cut, a short text complication is meant to be about 7 characters */
+    public static final int MAX_TEXT = 12;
+
+    /**
+     * What a provider sent, independent of how the platform represents it.
+     */
+    public interface Content {
+
+        int type();
+
+        /**
+         * Writes the text shown at {@code timeMs} into {@code out}, cut to its length
+         *
+         * @return the number of chars written
+         */
+        int text(long timeMs, char[] out);
+
+        /**
+         * Same as {@link #text(long, char[])} for the title, 0 if there is none
+         */
+        int title(long timeMs, char[] out);
+
+        /**
+         * Where the value is between the minimum (0) and the maximum (1), ranged content only
+         */
+        float value();
+
+        /**
+         * @return the first time after {@code timeMs} the text or title may read differently,
+         * {@link Long#MAX_VALUE} if they do not depend on the time
+         */
+        long nextChange(long timeMs);
+    }
+
+    public final int id;
+
+    // Laid out by FrameComposer#layoutComplications
+    public float centreX;
+    public float centreY;
+    public float radius;
+
+    public int type = TYPE_EMPTY;
+
+    public final char[] text = new char[MAX_TEXT];
+    public int textLength;
+
+    public final char[] title = new char[MAX_TEXT];
+    public int titleLength;
+
+    public float value;
+
+    private final char[] nextText = new char[MAX_TEXT];
+    private final char[] nextTitle = new char[MAX_TEXT];
+
+    private Content content;
+    private long validUntil = Long.MAX_VALUE;
+
+    // Handed over from the thread receiving the data to the rendering one
+    private Content pending;
+    private boolean hasPending;
+
+    private int version;
+
+    public ComplicationSlot(int id) {
+
+        this.id = id;
+    }
+
+    /**
+     * Sets the data to show from the next {@link #update(long)} on, {@code null} clears the slot.
+     * Safe to call from any thread.
+     */
+    public synchronized void offer(Content content) {
+
+        pending = content;
+        hasPending = true;
+    }
+
+    public synchronized boolean hasPending() {
+
+        return hasPending;
+    }
+
+    /**
+     * Brings the shown text, title and value up to date with the content and the time
+     *
+     * @return true if they changed, {@link #version()} was bumped then
+     */
+    public boolean update(long timeMs) {
+
+        boolean changed;
+
+        synchronized (this) {
+
+            changed = hasPending;
+
+            if (hasPending) {
+                content = pending;
+                pending = null;
+                hasPending = false;
+            }
+        }
+
+        // Nothing new and the text still reads the same
+        if (!changed && timeMs < validUntil) return false;
+
+        return read(timeMs);
+    }
+
+    /**
+     * Bumped every time the shown text, title, value or type change
+     */
+    public int version() {
+
+        return version;
+    }
+
+    public boolean isEmpty() {
+
+        return type == TYPE_EMPTY;
+    }
+
+    private boolean read(long timeMs) {
+
+        Content c = content;
+
+        if (c == null || c.type() == TYPE_EMPTY) {
+
+            validUntil = Long.MAX_VALUE;
+
+            if (type == TYPE_EMPTY) return false;
+
+            type = TYPE_EMPTY;
+            textLength = 0;
+            titleLength = 0;
+            value = 0;
+
+            version++;
+            return true;
+        }
+
+        validUntil = c.nextChange(timeMs);
+
+        int nextType = c.type();
+        int nextTextLength = c.text(timeMs, nextText);
+        int nextTitleLength = c.title(timeMs, nextTitle);
+        float nextValue = nextType == TYPE_RANGED ? c.value() : 0;
+
+        if (nextType == type && nextValue == value
+                && Chars.equals(nextText, nextTextLength, text, textLength)
+                && Chars.equals(nextTitle, nextTitleLength, title, titleLength)) {
+
+            // A provider update resending the same data, or a boundary the text did not change at
+            return false;
+        }
+
+        type = nextType;
+        value = nextValue;
+
+        System.arraycopy(nextText, 0, text, 0, nextTextLength);
+        textLength = nextTextLength;
+
+        System.arraycopy(nextTitle, 0, title, 0, nextTitleLength);
+        titleLength = nextTitleLength;
+
+        version++;
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * The complication slots of the face and when their data is worth a redraw.
+ * <p/>
+ * Provider updates only replace the pending data of a slot. In interactive mode they ask for a
+ * redraw right away; in ambient mode they don't, the data is picked up by the next frame, which is
+ * at the latest the one drawn on the next minute tick. A provider updating every few seconds then
+ * costs at most one ambient frame a minute.
+ */
+public class Complications {
+
+    private final ComplicationSlot[] slots;
+
+    private int redraws;
+    private int deferred;
+
+    public Complications(int... ids) {
+
+        slots = new ComplicationSlot[ids.length];
+
+        for (int i = 0; i < ids.length; i++) slots[i] = new ComplicationSlot(ids[i]);
+    }
+
+    public int size() {
+
+        return slots.length;
+    }
+
+    public ComplicationSlot get(int index) {
+
+        return slots[index];
+    }
+
+    /**
+     * @return the index of the slot with the complication {@code id}, -1 if there is none
+     */
+    public int indexOf(int id) {
+
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i].id == id) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Hands new data for the complication {@code id} to its slot
+     *
+     * @return whether the face should redraw for it now
+     */
+    public boolean offer(int id, ComplicationSlot.Content content, boolean ambient) {
+
+        int index = indexOf(id);
+
+        if (index < 0) return false;
+
+        slots[index].offer(content);
+
+        if (ambient) {
+            deferred++;
+            return false;
+        }
+
+        redraws++;
+        return true;
+    }
+
+    /**
+     * Updates every slot for {@code timeMs}, see {@link ComplicationSlot#update(long)}
+     *
+     * @return true if any of them changed
+     */
+    public boolean update(long timeMs) {
+
+        boolean changed = false;
+
+        for (ComplicationSlot slot : slots) changed |= slot.update(timeMs);
+
+        return changed;
+    }
+
+    /**
+     * @return true if data arrived that no frame has picked up yet
+     */
+    public boolean hasPending() {
+
+        for (ComplicationSlot slot : slots) {
+            if (slot.hasPending()) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes "complications redraws 12 deferred 40" into {@code out} and returns its length
+     */
+    public int format(char[] out) {
+
+        int i = Chars.append(out, 0, "complications redraws ");
+        i = Chars.append(out, i, redraws);
+        i = Chars.append(out, i, " deferred ");
+
+        return Chars.append(out, i, deferred);
+    }
+}
@@ -0,0 +1,71 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * The settings of the watch face that can be changed from the phone.
+ * <p/>
+ * Every setting is an int field addressed by its index, booleans are stored as 0 or 1. Changes
+ * are tracked as bit masks of field indices, see {@link ConfigCodec}.
+ */
+public final class Config {
+
+    /** Index of the theme, in the order of the watch's {@code R.array.themes} */
+    public static final int THEME = 0;
+    /** Whether the seconds are shown in interactive mode */
+    public static final int SHOW_SECONDS = 1;
+    /** Frame rate of the smooth ring animation in interactive mode, 0 for none */
+    public static final int ANIMATION_FPS = 2;
+
+    public static final int FIELDS = 3;
+
+    /** Mask of every field */
+    public static final int ALL = (1 << FIELDS) - 1;
+
+    private static final int[] DEFAULTS = {0, 1, 0};
+
+    private final int[] values = DEFAULTS.clone();
+
+    public int get(int field) {
+
+        return values[field];
+    }
+
+    public boolean getBoolean(int field) {
+
+        return values[field] != 0;
+    }
+
+    /**
+     * @return true if the value changed
+     */
+    public boolean set(int field, int value) {
+
+        if (values[field] == value) return false;
+
+        values[field] = value;
+        return true;
+    }
+
+    public boolean set(int field, boolean value) {
+
+        return set(field, value ? 1 : 0);
+    }
+
+    public void copyFrom(Config other) {
+
+        System.arraycopy(other.values, 0, values, 0, FIELDS);
+    }
+
+    /**
+     * @return the mask of the fields whose value differs from {@code other}
+     */
+    public int diff(Config other) {
+
+        int fields = 0;
+
+        for (int i = 0; i < FIELDS; i++) {
+            if (values[i] != other.values[i]) fields |= 1 << i;
+        }
+
+        return fields;
+    }
+}
@@ -0,0 +1,168 @@
+package com.devone.watchface.printivo.core;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Compact binary encoding of {@link Config} changes.
+ * <p/>
+ * A batch is a format byte, a flags byte, the batch sequence number as a varint and then, for
+ * every field it carries, the field index as a varint followed by the value as a zigzag varint.
+ * A delta batch carries only the fields that changed, a full batch ({@link #FLAG_FULL}) every
+ * field. Changing the theme is five bytes. Fields a decoder does not know are skipped, so a
+ * newer phone app can talk to an older watch face.
+ */
+public final class ConfigCodec {
+
+    /** Bump on incompatible changes of the layout, decoders reject other formats */
+    static final int FORMAT = 1;
+
+    static final int FLAG_FULL = 1;
+
+    /**
+     * A decoded batch
+     */
+    public static final class Batch {
+
+        public final long sequence;
+        public final boolean full;
+
+        /** Mask of the fields carried */
+        public final int fields;
+
+        private final int[] values;
+
+        Batch(long sequence, boolean full, int fields, int[] values) {
+
+            this.sequence = sequence;
+            this.full = full;
+            this.fields = fields;
+            this.values = values;
+        }
+
+        /**
+         * Writes the carried fields into {@code config}
+         *
+         * @return the mask of the fields whose value changed
+         */
+        public int applyTo(Config config) {
+
+            int changed = 0;
+
+            for (int i = 0; i < Config.FIELDS; i++) {
+                if ((fields & 1 << i) != 0 && config.set(i, values[i])) changed |= 1 << i;
+            }
+
+            return changed;
+        }
+
+        /**
+         * Whether this batch wins over {@code other}, put with the same sequence by the other
+         * device. Any strict order works as long as every device uses the same one.
+         */
+        boolean supersedes(Batch other) {
+
+            if (full != other.full) return full;
+            if (fields != other.fields) return fields > other.fields;
+
+            for (int i = 0; i < Config.FIELDS; i++) {
+                if (values[i] != other.values[i]) return values[i] > other.values[i];
+            }
+
+            return false;
+        }
+    }
+
+    private ConfigCodec() {}
+
+    /**
+     * Encodes the {@code fields} of {@code config}, or all of them for a full batch
+     */
+    public static byte[] encode(long sequence, boolean full, Config config, int fields) {
+
+        if (full) fields = Config.ALL;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+
+        out.write(FORMAT);
+        out.write(full ? FLAG_FULL : 0);
+        writeVarint(out, sequence);
+
+        for (int i = 0; i < Config.FIELDS; i++) {
+
+            if ((fields & 1 << i) == 0) continue;
+
+            writeVarint(out, i);
+            int value = config.get(i);
+            writeVarint(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the batch, or null if {@code data} is not a batch of this format
+     */
+    public static Batch decode(byte[] data) {
+
+        if (data == null || data.length < 3 || data[0] != FORMAT) return null;
+
+        boolean full = (data[1] & FLAG_FULL) != 0;
+
+        int[] position = {2};
+
+        long sequence = readVarint(data, position);
+        if (sequence < 0) return null;
+
+        int fields = 0;
+        int[] values = new int[Config.FIELDS];
+
+        while (position[0] < data.length) {
+
+            long field = readVarint(data, position);
+            long zigzag = readVarint(data, position);
+
+            if (field < 0 || zigzag < 0) return null;
+
+            // Written by a newer version, skipped
+            if (field >= Config.FIELDS) continue;
+
+            int value = (int) zigzag;
+            values[(int) field] = (value >>> 1) ^ -(value & 1);
+            fields |= 1 << (int) field;
+        }
+
+        return new Batch(sequence, full, fields, values);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write((int) value);
+    }
+
+    /**
+     * Reads a varint at {@code position[0]} and moves it past it
+     *
+     * @return the value, or -1 if the data ends within it or it is too long
+     */
+    private static long readVarint(byte[] data, int[] position) {
+
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+
+            if (position[0] >= data.length) return -1;
+
+            int b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) return value;
+        }
+
+        return -1;
+    }
+}
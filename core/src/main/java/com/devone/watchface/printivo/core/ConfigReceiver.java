@@ -0,0 +1,190 @@
+package com.devone.watchface.printivo.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rebuilds the {@link Config} from the batches the {@link ConfigSender}s of the phone and the
+ * watch put on a {@link DataChannel}.
+ * <p/>
+ * Every batch is its own item, {@code /config/<sequence>}, and the log always starts with a full
+ * batch. Batches are applied in sequence order: a delta only on top of the one before it, a full
+ * batch on top of anything older. Batches arriving ahead of a missing one wait for it (or for a
+ * later full batch), duplicates and stale ones are dropped.
+ * <p/>
+ * If both devices edit before seeing each other's batch they put two batches with the same
+ * sequence. Every device keeps the one that {@link ConfigCodec.Batch#supersedes supersedes} the
+ * other, whichever arrives first, so they agree again once both arrived. The last batch applied
+ * is replaced if needed; a collision only noticed after a later batch was applied on top is not
+ * repaired.
+ */
+public class ConfigReceiver implements DataChannel.Listener {
+
+    public static final String PATH_PREFIX = "/config/";
+
+    public interface Listener {
+
+        /**
+         * Every batch stored when subscribing has been applied
+         */
+        void onConfigLoaded(Config config);
+
+        /**
+         * @param fields mask of the fields whose value changed
+         */
+        void onConfigChanged(Config config, int fields);
+    }
+
+    private final Config config = new Config();
+
+    private final TreeMap<Long, ConfigCodec.Batch> pending = new TreeMap<>();
+
+    // The last batch applied and the state before it, to replace it by a colliding one
+    private ConfigCodec.Batch last;
+    private final Config beforeLast = new Config();
+    private long baseBeforeLast;
+
+    private final Config replaced = new Config();
+
+    private final Listener listener;
+
+    // Sequence of the last batch applied and of the full batch the log starts with, 0 for none
+    private long applied;
+    private long base;
+
+    private boolean loaded;
+
+    public ConfigReceiver(Listener listener) {
+
+        this.listener = listener;
+    }
+
+    public static String path(long sequence) {
+
+        return PATH_PREFIX + sequence;
+    }
+
+    @Override
+    public void onDataChanged(String path, byte[] data) {
+
+        if (!path.startsWith(PATH_PREFIX)) return;
+
+        ConfigCodec.Batch batch = ConfigCodec.decode(data);
+
+        // Not a batch this version understands
+        if (batch == null || batch.sequence < applied) return;
+
+        int changed = 0;
+
+        if (batch.sequence == applied) {
+
+            // A duplicate, or the losing side of a collision
+            if (last == null || !batch.supersedes(last)) return;
+
+            changed = replaceLast(batch);
+
+        } else {
+
+            ConfigCodec.Batch waiting = pending.get(batch.sequence);
+            if (waiting == null || batch.supersedes(waiting)) pending.put(batch.sequence, batch);
+        }
+
+        changed |= drain();
+
+        if (changed != 0) listener.onConfigChanged(config, changed);
+    }
+
+    @Override
+    public void onLoaded() {
+
+        loaded = true;
+
+        listener.onConfigLoaded(config);
+    }
+
+    public Config config() {
+
+        return config;
+    }
+
+    public boolean isLoaded() {
+
+        return loaded;
+    }
+
+    /**
+     * The sequence of the last batch applied, 0 if there was none
+     */
+    public long sequence() {
+
+        return applied;
+    }
+
+    /**
+     * The sequence of the full batch the applied log starts with, 0 if there was none
+     */
+    public long base() {
+
+        return base;
+    }
+
+    /**
+     * Number of batches waiting for an earlier one
+     */
+    public int pending() {
+
+        return pending.size();
+    }
+
+    private int drain() {
+
+        // A full batch makes everything before it obsolete
+        for (Map.Entry<Long, ConfigCodec.Batch> entry : pending.descendingMap().entrySet()) {
+
+            if (entry.getValue().full) {
+                pending.headMap(entry.getKey()).clear();
+                break;
+            }
+        }
+
+        int changed = 0;
+
+        while (!pending.isEmpty()) {
+
+            ConfigCodec.Batch batch = pending.firstEntry().getValue();
+
+            if (!batch.full && batch.sequence != applied + 1) break;
+
+            pending.pollFirstEntry();
+
+            last = batch;
+            beforeLast.copyFrom(config);
+            baseBeforeLast = base;
+
+            changed |= batch.applyTo(config);
+
+            applied = batch.sequence;
+            if (batch.full) base = batch.sequence;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Applies {@code batch} instead of the last batch applied, which has the same sequence
+     *
+     * @return the mask of the fields whose value changed
+     */
+    private int replaceLast(ConfigCodec.Batch batch) {
+
+        replaced.copyFrom(config);
+        config.copyFrom(beforeLast);
+
+        batch.applyTo(config);
+
+        last = batch;
+        base = batch.full ? batch.sequence : baseBeforeLast;
+
+        return config.diff(replaced);
+    }
+}
@@ -0,0 +1,187 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Sends {@link Config} edits as batches on a {@link DataChannel}. The phone app sends the edits
+ * made in it, the watch face the ones made by tapping it, so both keep showing the same config.
+ * <p/>
+ * Edits are coalesced: a batch is only sent once no edit came in for {@link #QUIET_MS}, or
+ * {@link #MAX_DELAY_MS} after the first edit of the batch at the latest, so dragging through a
+ * list of themes is one batch. It carries only the fields that differ from what was last sent, and
+ * nothing is sent if the edits cancelled out.
+ * <p/>
+ * Every batch is put as its own item (see {@link ConfigReceiver}) so the Data Layer never
+ * replaces a delta the watch has not seen yet. Every {@link #COMPACT_AFTER} batches a full batch
+ * is sent instead and the batches before it are deleted, which keeps the log short for a watch
+ * that reconnects or restarts.
+ * <p/>
+ * Batches the other device sent are {@link #rebase() taken over} before sending, so the log
+ * continues after them and they are not overwritten by values this sender did not edit.
+ */
+public class ConfigSender {
+
+    static final long QUIET_MS = 300;
+    static final long MAX_DELAY_MS = 1000;
+
+    static final int COMPACT_AFTER = 16;
+
+    private final DataChannel channel;
+    private final ConfigReceiver synced;
+
+    private final Config sent = new Config();
+    private final Config edited = new Config();
+
+    private long sequence;
+    private long base;
+
+    // Mask of the fields edited since the last batch
+    private int dirty;
+
+    // Time of the first and of the last edit not sent yet, -1 when there is none
+    private long firstEdit = -1;
+    private long lastEdit = -1;
+
+    private int edits;
+    private int batches;
+
+    /**
+     * @param synced subscribed to {@code channel} and {@link ConfigReceiver#isLoaded() loaded},
+     *               so the sender continues the existing log
+     */
+    public ConfigSender(DataChannel channel, ConfigReceiver synced) {
+
+        if (!synced.isLoaded()) throw new IllegalStateException("Config not loaded yet");
+
+        this.channel = channel;
+        this.synced = synced;
+
+        rebase();
+    }
+
+    /**
+     * The config including the edits not sent yet
+     */
+    public Config config() {
+
+        return edited;
+    }
+
+    public void set(int field, int value, long nowMs) {
+
+        edited.set(field, value);
+        dirty |= 1 << field;
+
+        if (firstEdit < 0) firstEdit = nowMs;
+        lastEdit = nowMs;
+
+        edits++;
+    }
+
+    public void set(int field, boolean value, long nowMs) {
+
+        set(field, value ? 1 : 0, nowMs);
+    }
+
+    /**
+     * @return milliseconds until {@link #flush(long)} sends the pending edits, -1 if there are none
+     */
+    public long delay(long nowMs) {
+
+        if (firstEdit < 0) return -1;
+
+        long due = Math.min(lastEdit + QUIET_MS, firstEdit + MAX_DELAY_MS);
+
+        return Math.max(0, due - nowMs);
+    }
+
+    /**
+     * Sends the pending edits if they are due
+     *
+     * @return false if there are none or they are not due yet
+     */
+    public boolean flush(long nowMs) {
+
+        if (delay(nowMs) != 0) return false;
+
+        send();
+        return true;
+    }
+
+    /**
+     * Sends the pending edits right away, e.g. when the phone app goes to the background
+     */
+    public void flushNow() {
+
+        if (firstEdit >= 0) send();
+    }
+
+    /**
+     * Continues after the batches the receiver applied since this sender's last one, e.g. ones
+     * the other device sent. The fields edited since the last batch keep their edited value, the
+     * others take the received one. Nothing happens while the receiver has not seen this
+     * sender's last batch yet.
+     * <p/>
+     * Runs before every batch; a UI showing {@link #config()} calls it when the receiver reports
+     * a change.
+     */
+    public void rebase() {
+
+        if (synced.sequence() < sequence) return;
+
+        Config config = synced.config();
+
+        sent.copyFrom(config);
+
+        for (int i = 0; i < Config.FIELDS; i++) {
+            if ((dirty & 1 << i) == 0) edited.set(i, config.get(i));
+        }
+
+        sequence = synced.sequence();
+        base = synced.base();
+    }
+
+    /**
+     * Number of edits and of batches they were sent in
+     */
+    public int edits() {
+
+        return edits;
+    }
+
+    public int batches() {
+
+        return batches;
+    }
+
+    private void send() {
+
+        firstEdit = -1;
+        lastEdit = -1;
+
+        rebase();
+        dirty = 0;
+
+        int fields = edited.diff(sent);
+
+        // The log has to start with a full batch, after that empty batches are pointless
+        if (fields == 0 && sequence > 0) return;
+
+        sequence++;
+
+        boolean full = base == 0 || sequence - base >= COMPACT_AFTER;
+
+        channel.put(ConfigReceiver.path(sequence),
+                ConfigCodec.encode(sequence, full, edited, fields));
+
+        if (full) {
+
+            for (long s = Math.max(1, base); s < sequence; s++) {
+                channel.delete(ConfigReceiver.path(s));
+            }
+
+            base = sequence;
+        }
+
+        sent.copyFrom(edited);
+        batches++;
+    }
+}
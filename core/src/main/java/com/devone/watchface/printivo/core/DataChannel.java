@@ -0,0 +1,34 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * The part of the Wearable Data Layer the config sync needs: small items stored under a path,
+ * kept in sync between the phone and the watch.
+ * <p/>
+ * On the devices it is backed by the Data API, in tests by an in-process fake. Items are
+ * delivered asynchronously and, like Data API items, only their latest version is guaranteed to
+ * arrive.
+ */
+public interface DataChannel {
+
+    interface Listener {
+
+        void onDataChanged(String path, byte[] data);
+
+        /**
+         * Every item stored when subscribing has been delivered
+         */
+        void onLoaded();
+    }
+
+    void put(String path, byte[] data);
+
+    void delete(String path);
+
+    /**
+     * Delivers every item already stored under {@code prefix}, in no particular order, and from
+     * then on every item put under it
+     */
+    void subscribe(String prefix, Listener listener);
+
+    void unsubscribe(Listener listener);
+}
@@ -0,0 +1,180 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * A reusable list of draw commands describing one frame (or one layer) of the watch face.
+ * <p/>
+ * Commands are stored in preallocated primitive arrays so recording and replaying a frame does
+ * not allocate. Replaying hands every command to a {@link Target}, which on the watch is backed
+ * by a canvas and in benchmarks and tests by whatever the caller needs.
+ */
+public final class DrawList {
+
+    public static final int OP_COLOR = 0;
+    public static final int OP_LAYER = 1;
+    public static final int OP_TEXT = 2;
+    public static final int OP_TIME = 3;
+    public static final int OP_BITMAP = 4;
+    public static final int OP_CIRCLE = 5;
+    public static final int OP_ARC = 6;
+
+    private static final int INTS = 4;
+    private static final int FLOATS = 5;
+
+    public interface Target {
+
+        void color(int color);
+
+        void layer(int layer);
+
+        void text(int paint, char[] text, int start, int count, float x, float y, int color);
+
+        /**
+         * Time glyphs followed by the AM/PM marker, both on {@code baseline}
+         */
+        void time(char[] text, int count, int amPm, float x, float baseline, int color);
+
+        void bitmap(int bitmap, float x, float y);
+
+        void circle(float cx, float cy, float radius, int color);
+
+        /**
+         * A stroke {@code width} wide along the circle, {@code sweep} degrees clockwise from
+         * 12 o'clock
+         */
+        void arc(float cx, float cy, float radius, float width, float sweep, int color);
+    }
+
+    private final int[] ops;
+    private final int[] ints;
+    private final float[] floats;
+    private final char[][] texts;
+
+    private int size;
+
+    public DrawList(int capacity) {
+
+        ops = new int[capacity];
+        ints = new int[capacity * INTS];
+        floats = new float[capacity * FLOATS];
+        texts = new char[capacity][];
+    }
+
+    public void clear() {
+
+        for (int i = 0; i < size; i++) texts[i] = null;
+        size = 0;
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    public int op(int index) {
+
+        return ops[index];
+    }
+
+    public void color(int color) {
+
+        add(OP_COLOR, null, color, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public void layer(int layer) {
+
+        add(OP_LAYER, null, layer, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public void text(int paint, char[] text, int start, int count, float x, float y, int color) {
+
+        add(OP_TEXT, text, paint, start, count, color, x, y, 0, 0, 0);
+    }
+
+    public void time(char[] text, int count, int amPm, float x, float baseline, int color) {
+
+        add(OP_TIME, text, count, amPm, color, 0, x, baseline, 0, 0, 0);
+    }
+
+    public void bitmap(int bitmap, float x, float y) {
+
+        add(OP_BITMAP, null, bitmap, 0, 0, 0, x, y, 0, 0, 0);
+    }
+
+    public void circle(float cx, float cy, float radius, int color) {
+
+        add(OP_CIRCLE, null, color, 0, 0, 0, cx, cy, radius, 0, 0);
+    }
+
+    public void arc(float cx, float cy, float radius, float width, float sweep, int color) {
+
+        add(OP_ARC, null, color, 0, 0, 0, cx, cy, radius, width, sweep);
+    }
+
+    public void replay(Target target) {
+
+        for (int i = 0; i < size; i++) {
+
+            int n = i * INTS;
+            int f = i * FLOATS;
+
+            switch (ops[i]) {
+
+                case OP_COLOR:
+                    target.color(ints[n]);
+                    break;
+
+                case OP_LAYER:
+                    target.layer(ints[n]);
+                    break;
+
+                case OP_TEXT:
+                    target.text(ints[n], texts[i], ints[n + 1], ints[n + 2],
+                            floats[f], floats[f + 1], ints[n + 3]);
+                    break;
+
+                case OP_TIME:
+                    target.time(texts[i], ints[n], ints[n + 1],
+                            floats[f], floats[f + 1], ints[n + 2]);
+                    break;
+
+                case OP_BITMAP:
+                    target.bitmap(ints[n], floats[f], floats[f + 1]);
+                    break;
+
+                case OP_CIRCLE:
+                    target.circle(floats[f], floats[f + 1], floats[f + 2], ints[n]);
+                    break;
+
+                case OP_ARC:
+                    target.arc(floats[f], floats[f + 1], floats[f + 2], floats[f + 3],
+                            floats[f + 4], ints[n]);
+                    break;
+            }
+        }
+    }
+
+    private void add(int op, char[] text, int i0, int i1, int i2, int i3,
+                     float f0, float f1, float f2, float f3, float f4) {
+
+        if (size == ops.length) throw new IllegalStateException("DrawList is full");
+
+        int n = size * INTS;
+        int f = size * FLOATS;
+
+        ops[size] = op;
+        texts[size] = text;
+
+        ints[n] = i0;
+        ints[n + 1] = i1;
+        ints[n + 2] = i2;
+        ints[n + 3] = i3;
+
+        floats[f] = f0;
+        floats[f + 1] = f1;
+        floats[f + 2] = f2;
+        floats[f + 3] = f3;
+        floats[f + 4] = f4;
+
+        size++;
+    }
+}
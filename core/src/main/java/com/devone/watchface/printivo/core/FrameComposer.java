@@ -0,0 +1,196 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Turns the current time and mode into the draw commands of a frame.
+ * <p/>
+ * A frame is split in two: the static layer (background, date, logo and decor rings), which only
+ * changes with the mode or the day, and the per frame commands that composite that layer and draw
+ * the time on top of it. The complications are drawn by the frame too, each from its own cached
+ * raster, so new complication data never re-renders the static layer.
+ */
+public class FrameComposer {
+
+    public static final int LAYER_STATIC = 0;
+
+    public static final int BITMAP_LOGO = 0;
+    /** Followed by one bitmap per complication slot */
+    public static final int BITMAP_COMPLICATION = 1;
+
+    public static final int PAINT_DATE = 0;
+
+    public static final int TAP_DATE = 0;
+    public static final int TAP_TIME = 1;
+    public static final int TAP_LOGO = 2;
+    public static final int TAP_DECOR = 3;
+    /** Followed by one region per complication slot */
+    public static final int TAP_COMPLICATION = 4;
+
+    private final ClockText text;
+    private final LayoutSpec spec;
+
+    private Palette palette;
+
+    private Complications complications = new Complications();
+
+    private boolean showSeconds = true;
+
+    private boolean sweep;
+    private float sweepDegrees = -1;
+
+    public FrameComposer(ClockText text, LayoutSpec spec, Palette palette) {
+
+        this.text = text;
+        this.spec = spec;
+        this.palette = palette;
+    }
+
+    public void setPalette(Palette palette) {
+
+        this.palette = palette;
+    }
+
+    public Palette getPalette() {
+
+        return palette;
+    }
+
+    public void setComplications(Complications complications) {
+
+        this.complications = complications;
+    }
+
+    /**
+     * Whether interactive frames show the seconds, ambient frames never do
+     */
+    public void setShowSeconds(boolean showSeconds) {
+
+        this.showSeconds = showSeconds;
+    }
+
+    /**
+     * Whether interactive frames sweep the outer decor ring with the seconds, for the smooth
+     * animation. The rings stay in the static layer, the sweep is drawn over them every frame.
+     */
+    public void setSweep(boolean sweep) {
+
+        this.sweep = sweep;
+    }
+
+    /**
+     * The angle of the sweep in the last composed frame, -1 if it has none
+     */
+    public float sweep() {
+
+        return sweepDegrees;
+    }
+
+    public void composeStatic(DrawList out, ClockState clock, boolean ambient) {
+
+        out.clear();
+
+        // Draw the background.
+        out.color(ambient ? palette.ambientBackground : palette.background);
+
+        if (!ambient) {
+            text.setDate(clock.dayOfMonth, clock.month);
+            out.text(PAINT_DATE, text.date, 0, text.dateLength,
+                    spec.dateOffsetX, spec.dateBaseline, palette.alt);
+        }
+
+        // The logo raster is laid out from the top of the logo line
+        out.bitmap(BITMAP_LOGO, spec.logoOffsetX, spec.logoOffsetY);
+
+        if (!ambient) {
+            out.circle(spec.decorCentreX, spec.decorCentreY, spec.decorRadius1, palette.blue);
+            out.circle(spec.decorCentreX, spec.decorCentreY, spec.decorRadius2, palette.pink);
+            out.circle(spec.decorCentreX, spec.decorCentreY, spec.decorRadius3, palette.yellow);
+            out.circle(spec.decorCentreX, spec.decorCentreY, spec.decorRadius4, palette.base);
+        }
+    }
+
+    /**
+     * Places the complication slots side by side in the lower right, across from the decor rings
+     * and below the logo. Up to two fit there.
+     */
+    public void layoutComplications() {
+
+        float radius = spec.width / 11;
+        float centreY = spec.height * 27 / 32;
+
+        for (int i = 0; i < complications.size(); i++) {
+
+            ComplicationSlot slot = complications.get(i);
+
+            slot.radius = radius;
+            slot.centreX = spec.width * (8 + 3 * i) / 16;
+            slot.centreY = centreY;
+        }
+    }
+
+    /**
+     * Registers the tappable parts of the face. The rows of the date, time and logo span the
+     * whole width (their text widths are only known when drawing), the decor rings and the
+     * complications are on top.
+     */
+    public void composeTapRegions(TapRegions out) {
+
+        out.clear();
+
+        out.addRect(TAP_DATE, 0, spec.dateOffsetY, spec.width, spec.timeOffsetY);
+        out.addRect(TAP_TIME, 0, spec.timeOffsetY, spec.width, spec.logoOffsetY);
+        // About one line of the logo
+        out.addRect(TAP_LOGO, 0, spec.logoOffsetY, spec.width,
+                spec.logoOffsetY + spec.logoTextSize * 1.2f);
+        out.addCircle(TAP_DECOR, spec.decorCentreX, spec.decorCentreY, spec.decorRadius1);
+
+        for (int i = 0; i < complications.size(); i++) {
+
+            ComplicationSlot slot = complications.get(i);
+            out.addCircle(TAP_COMPLICATION + i, slot.centreX, slot.centreY, slot.radius);
+        }
+
+        out.build(spec.width, spec.height);
+    }
+
+    public void composeFrame(DrawList out, ClockState clock, boolean ambient) {
+
+        out.clear();
+
+        out.layer(LAYER_STATIC);
+
+        if (sweep && !ambient) {
+
+            // Through the outer ring over the minute, to the millisecond so every frame moves it
+            int millis = clock.second * 1000 + (int) (clock.time % 1000);
+            float width = spec.decorRadius1 - spec.decorRadius2;
+
+            sweepDegrees = millis * 360f / 60000;
+
+            out.arc(spec.decorCentreX, spec.decorCentreY, spec.decorRadius1 - width / 2, width,
+                    sweepDegrees, palette.alt);
+
+        } else {
+
+            sweepDegrees = -1;
+        }
+
+        // Draw
+        // H:MM in ambient mode
+        // H:MM:SS in interactive mode, unless the seconds are hidden.
+        text.setTime(clock.hour, clock.minute, clock.second, !ambient && showSeconds);
+
+        out.time(text.time, text.timeLength, clock.amPm, spec.timeOffsetX, spec.timeBaseline,
+                ambient ? palette.ambientText : palette.alt);
+
+        // Rasterized per slot, only when its content changes
+        for (int i = 0; i < complications.size(); i++) {
+
+            ComplicationSlot slot = complications.get(i);
+
+            if (slot.isEmpty()) continue;
+
+            out.bitmap(BITMAP_COMPLICATION + i, slot.centreX - slot.radius,
+                    slot.centreY - slot.radius);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Paces an animation to a target frame rate on top of the display's vsync and checks every frame
+ * against a time budget.
+ * <p/>
+ * Vsync callbacks come at the display rate, {@link #onVsync(long)} picks the ones a frame is due
+ * at so 30 fps draws on every other one of a 60 Hz display. A frame is on time if drawing it took
+ * at most {@link #BUDGET_PERCENT} of the frame interval, the rest is left to compositing, and no
+ * due vsync was skipped before it.
+ * <p/>
+ * Only the last {@link #WINDOW} frames decide whether the animation keeps up: once more than
+ * {@link #MAX_LATE} of them were late the pacer {@link #hasFallenBack() falls back} and stops
+ * asking for frames until it is {@link #stop() stopped} and started again. The on time count is
+ * kept across starts for reporting.
+ */
+public class FramePacer {
+
+    static final int WINDOW = 60;
+    static final int MAX_LATE = 6;
+
+    static final int BUDGET_PERCENT = 50;
+
+    private static final long SECOND_NANOS = 1000000000L;
+
+    private int fps;
+    private long interval;
+    private long budget;
+
+    // Vsync time of the last frame asked for, -1 before the first one
+    private long lastFrame = -1;
+
+    // A frame was asked for and not drawn yet, and whether it already is late
+    private boolean pending;
+    private boolean pendingLate;
+
+    private boolean fallenBack;
+
+    private final boolean[] window = new boolean[WINDOW];
+    private int windowIndex;
+    private int windowSize;
+    private int windowLate;
+
+    private long frames;
+    private long onTime;
+    private long maxDraw;
+    private int fallbacks;
+
+    /**
+     * Starts pacing at {@code fps} frames per second with an empty window
+     */
+    public void start(int fps) {
+
+        if (fps <= 0) throw new IllegalArgumentException("fps must be positive");
+
+        this.fps = fps;
+
+        interval = SECOND_NANOS / fps;
+        budget = interval * BUDGET_PERCENT / 100;
+
+        stop();
+    }
+
+    /**
+     * Forgets the frame in flight, the window and a fall back, e.g. when the face leaves
+     * interactive mode
+     */
+    public void stop() {
+
+        lastFrame = -1;
+        pending = false;
+        fallenBack = false;
+
+        windowIndex = 0;
+        windowSize = 0;
+        windowLate = 0;
+    }
+
+    /**
+     * @param frameTimeNanos the vsync time the callback was given
+     * @return true if a frame is due at this vsync
+     */
+    public boolean onVsync(long frameTimeNanos) {
+
+        if (fallenBack || fps == 0) return false;
+
+        if (lastFrame >= 0) {
+
+            long elapsed = frameTimeNanos - lastFrame;
+
+            // A quarter interval of slack so vsync jitter does not push a due frame to the next one
+            if (elapsed < interval - interval / 4) return false;
+
+            // A due vsync went by without a frame, the previous one ran over
+            pendingLate = elapsed >= interval + interval / 2;
+
+        } else {
+
+            pendingLate = false;
+        }
+
+        lastFrame = frameTimeNanos;
+        pending = true;
+
+        return true;
+    }
+
+    /**
+     * Records how long the frame asked for by the last {@link #onVsync(long)} took to draw.
+     * Frames drawn without being asked for, e.g. for a tick, are not counted.
+     */
+    public void onFrameDrawn(long drawNanos) {
+
+        if (!pending) return;
+
+        pending = false;
+
+        boolean late = pendingLate || drawNanos > budget;
+
+        frames++;
+        if (!late) onTime++;
+        if (drawNanos > maxDraw) maxDraw = drawNanos;
+
+        if (windowSize == WINDOW) {
+            if (window[windowIndex]) windowLate--;
+        } else {
+            windowSize++;
+        }
+
+        window[windowIndex] = late;
+        if (late) windowLate++;
+
+        windowIndex = (windowIndex + 1) % WINDOW;
+
+        if (windowLate > MAX_LATE) {
+            fallenBack = true;
+            fallbacks++;
+        }
+    }
+
+    /**
+     * Whether too many recent frames were late, the caller should go back to its slower cadence
+     */
+    public boolean hasFallenBack() {
+
+        return fallenBack;
+    }
+
+    public int fps() {
+
+        return fps;
+    }
+
+    public long budgetNanos() {
+
+        return budget;
+    }
+
+    public long frames() {
+
+        return frames;
+    }
+
+    public long onTime() {
+
+        return onTime;
+    }
+
+    /**
+     * Share of the frames counted so far that were on time, 1 before the first one
+     */
+    public float onTimeFraction() {
+
+        return frames == 0 ? 1 : (float) onTime / frames;
+    }
+
+    public int fallbacks() {
+
+        return fallbacks;
+    }
+
+    /**
+     * Writes "anim 60fps on time 97.5% 1170/1200 max 6.20ms fallbacks 0" into {@code out} and
+     * returns its length
+     */
+    public int format(char[] out) {
+
+        long permille = frames == 0 ? 1000 : onTime * 1000 / frames;
+
+        int i = Chars.append(out, 0, "anim ");
+        i = Chars.append(out, i, fps);
+        i = Chars.append(out, i, "fps on time ");
+        i = Chars.append(out, i, permille / 10);
+        out[i++] = '.';
+        i = Chars.append(out, i, permille % 10);
+        i = Chars.append(out, i, "% ");
+        i = Chars.append(out, i, onTime);
+        out[i++] = '/';
+        i = Chars.append(out, i, frames);
+        i = Chars.append(out, i, " max ");
+        i = Chars.appendMillis(out, i, maxDraw);
+        i = Chars.append(out, i, "ms fallbacks ");
+
+        return Chars.append(out, i, fallbacks);
+    }
+}
@@ -0,0 +1,159 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Records how long each phase of drawing a frame takes and how many update ticks missed their
+ * deadline.
+ * <p/>
+ * Every phase keeps a fixed size histogram with power of two nanosecond buckets, so recording
+ * never allocates and can be left on in the field. Percentiles are approximated by the upper
+ * bound of the bucket they fall in.
+ * <p/>
+ * Every method locks the profiler, so the render thread can record its phases while the main
+ * thread records whole frames and formats the overlay. The lock is almost never contended.
+ */
+public class FrameProfiler {
+
+    public static final int PHASE_FRAME = 0;
+    public static final int PHASE_LAYER = 1;
+    public static final int PHASE_DATE = 2;
+    public static final int PHASE_TIME = 3;
+    public static final int PHASE_LOGO = 4;
+    public static final int PHASE_DECOR = 5;
+
+    public static final int PHASES = 6;
+
+    private static final String[] NAMES = {"frame", "layer", "date", "time", "logo", "decor"};
+
+    /** Bucket i holds durations in [2^i, 2^(i+1)) ns, the last one everything above 2^BUCKETS */
+    private static final int BUCKETS = 40;
+
+    private final long[] counts = new long[PHASES];
+    private final long[] totals = new long[PHASES];
+    private final long[] maxima = new long[PHASES];
+    private final long[] buckets = new long[PHASES * BUCKETS];
+
+    private long ticks;
+    private long missedTicks;
+
+    public synchronized void record(int phase, long nanos) {
+
+        if (nanos < 0) nanos = 0;
+
+        counts[phase]++;
+        totals[phase] += nanos;
+        if (nanos > maxima[phase]) maxima[phase] = nanos;
+
+        buckets[phase * BUCKETS + bucket(nanos)]++;
+    }
+
+    /**
+     * Records an update tick that fired {@code latenessMs} after it was scheduled. The tick
+     * missed its deadline if it fired a whole period (or more) late, which means at least one
+     * update was skipped.
+     */
+    public synchronized void recordTick(long latenessMs, long periodMs) {
+
+        ticks++;
+        if (latenessMs >= periodMs) missedTicks++;
+    }
+
+    public synchronized long count(int phase) {
+
+        return counts[phase];
+    }
+
+    public synchronized long max(int phase) {
+
+        return maxima[phase];
+    }
+
+    public synchronized long mean(int phase) {
+
+        return counts[phase] == 0 ? 0 : totals[phase] / counts[phase];
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound in nanoseconds of the bucket the percentile falls in
+     */
+    public synchronized long percentile(int phase, int percentile) {
+
+        long count = counts[phase];
+        if (count == 0) return 0;
+
+        long rank = (count * percentile + 99) / 100;
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[phase * BUCKETS + i];
+            if (seen >= Math.max(1, rank)) return Math.min(maxima[phase], (1L << (i + 1)) - 1);
+        }
+
+        return maxima[phase];
+    }
+
+    public synchronized long ticks() {
+
+        return ticks;
+    }
+
+    public synchronized long missedTicks() {
+
+        return missedTicks;
+    }
+
+    public synchronized void reset() {
+
+        for (int i = 0; i < PHASES; i++) {
+            counts[i] = 0;
+            totals[i] = 0;
+            maxima[i] = 0;
+        }
+
+        for (int i = 0; i < buckets.length; i++) buckets[i] = 0;
+
+        ticks = 0;
+        missedTicks = 0;
+    }
+
+    /**
+     * Writes a one line summary of {@code phase} ("time 12 50% 0.03 99% 0.13 max 0.2ms") into
+     * {@code out} and returns its length.
+     */
+    public synchronized int format(int phase, char[] out) {
+
+        int i = 0;
+
+        i = Chars.append(out, i, NAMES[phase]);
+        out[i++] = ' ';
+        i = Chars.append(out, i, counts[phase]);
+        i = Chars.append(out, i, " 50% ");
+        i = Chars.appendMillis(out, i, percentile(phase, 50));
+        i = Chars.append(out, i, " 99% ");
+        i = Chars.appendMillis(out, i, percentile(phase, 99));
+        i = Chars.append(out, i, " max ");
+        i = Chars.appendMillis(out, i, maxima[phase]);
+        i = Chars.append(out, i, "ms");
+
+        return i;
+    }
+
+    /**
+     * Writes "ticks N missed M" into {@code out} and returns its length.
+     */
+    public synchronized int formatTicks(char[] out) {
+
+        int i = Chars.append(out, 0, "ticks ");
+        i = Chars.append(out, i, ticks);
+        i = Chars.append(out, i, " missed ");
+        i = Chars.append(out, i, missedTicks);
+
+        return i;
+    }
+
+    private static int bucket(long nanos) {
+
+        int bucket = 63 - Long.numberOfLeadingZeros(nanos | 1);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+}
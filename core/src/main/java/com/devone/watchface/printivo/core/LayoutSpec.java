@@ -0,0 +1,150 @@
+package com.devone.watchface.printivo.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Platform independent geometry of the watch face: text sizes, text offsets and the decor rings.
+ * <p/>
+ * The values are derived in three steps as their inputs become available to the engine:
+ * {@link #setDisplay(float, float, float)} when it is created, {@link #setTextMetrics(float,
+ * float, float, float)} once the fonts are measured, and {@link #setRound(boolean)} when the
+ * window insets are applied.
+ */
+public class LayoutSpec {
+
+    /** Number of floats {@link #write(DataOutput)} writes */
+    static final int FIELDS = 21;
+
+    public float width;
+    public float height;
+    public float scaled;
+
+    public float dateTextSize;
+    public float timeTextSize;
+    public float ampmTextSize;
+    public float logoTextSize;
+
+    public float dateOffsetX;
+    public float timeOffsetX;
+    public float logoOffsetX;
+
+    // The y-offsets are the offset of the top of the text
+    public float dateOffsetY;
+    public float timeOffsetY;
+    public float logoOffsetY;
+
+    public float dateBaseline;
+    public float timeBaseline;
+
+    public float decorCentreX;
+    public float decorCentreY;
+    public float decorRadius1;
+    public float decorRadius2;
+    public float decorRadius3;
+    public float decorRadius4;
+
+    /**
+     * @param scaled ratio of the scaled (font) density to the display density
+     */
+    public void setDisplay(float width, float height, float scaled) {
+
+        this.width = width;
+        this.height = height;
+        this.scaled = scaled;
+
+        dateTextSize = scaled * width / 16;
+        timeTextSize = scaled * width / 5;
+        ampmTextSize = scaled * width / 10;
+        logoTextSize = scaled * (width * 3 / 20);
+
+        dateOffsetX = width / 10;// 8
+        timeOffsetX = width / 12;
+        logoOffsetX = width / 10;// 8
+
+        dateOffsetY = height / 4;
+    }
+
+    /**
+     * Font metrics (negative above the baseline) of the date and time text at their text sizes
+     */
+    public void setTextMetrics(float dateTop, float dateDescent, float timeTop, float timeAscent) {
+
+        float dateHeight = dateDescent - dateTop;
+        timeOffsetY = dateOffsetY + dateHeight + width / 40;
+
+        float timeHeight = - timeTop;
+        logoOffsetY = timeOffsetY + timeHeight;
+
+        // The date is drawn from its top, the time from its ascent like a StaticLayout would
+        dateBaseline = dateOffsetY - dateTop;
+        timeBaseline = timeOffsetY - timeAscent;
+    }
+
+    public void setRound(boolean isRound) {
+
+        decorCentreX = isRound ? width / 8 : 0;
+        decorCentreY = isRound ? height - (height / 16) : height;
+
+
+        decorRadius1 = width * 3 / 16;
+        float decrement = width / (isRound ? 40 : 32);
+
+        decorRadius2 = decorRadius1 - decrement;
+        decorRadius3 = decorRadius2 - decrement;
+        decorRadius4 = decorRadius3 - decrement;
+    }
+
+    /**
+     * Writes every field, in declaration order, see {@link LayoutSpecCache}
+     */
+    void write(DataOutput out) throws IOException {
+
+        float[] fields = {
+                width, height, scaled,
+                dateTextSize, timeTextSize, ampmTextSize, logoTextSize,
+                dateOffsetX, timeOffsetX, logoOffsetX,
+                dateOffsetY, timeOffsetY, logoOffsetY,
+                dateBaseline, timeBaseline,
+                decorCentreX, decorCentreY,
+                decorRadius1, decorRadius2, decorRadius3, decorRadius4
+        };
+
+        for (float field : fields) out.writeFloat(field);
+    }
+
+    /**
+     * Reads the fields written by {@link #write(DataOutput)}
+     */
+    void read(DataInput in) throws IOException {
+
+        width = in.readFloat();
+        height = in.readFloat();
+        scaled = in.readFloat();
+
+        dateTextSize = in.readFloat();
+        timeTextSize = in.readFloat();
+        ampmTextSize = in.readFloat();
+        logoTextSize = in.readFloat();
+
+        dateOffsetX = in.readFloat();
+        timeOffsetX = in.readFloat();
+        logoOffsetX = in.readFloat();
+
+        dateOffsetY = in.readFloat();
+        timeOffsetY = in.readFloat();
+        logoOffsetY = in.readFloat();
+
+        dateBaseline = in.readFloat();
+        timeBaseline = in.readFloat();
+
+        decorCentreX = in.readFloat();
+        decorCentreY = in.readFloat();
+
+        decorRadius1 = in.readFloat();
+        decorRadius2 = in.readFloat();
+        decorRadius3 = in.readFloat();
+        decorRadius4 = in.readFloat();
+    }
+}
@@ -0,0 +1,164 @@
+package com.devone.watchface.printivo.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Keeps a computed {@link LayoutSpec} in a small binary file so later starts on the same device
+ * can skip measuring the fonts.
+ * <p/>
+ * The file holds a header (magic, format version), the {@link Key} the spec was computed for and
+ * the spec fields. It is read with a single read and only used if its size, format version and key
+ * all match; anything else counts as a miss and the spec is recomputed and stored again.
+ */
+public class LayoutSpecCache {
+
+    /** Bump whenever the fields of {@link LayoutSpec} or the way they are derived change */
+    static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x50524c53; // "PRLS"
+
+    private static final int HEADER_SIZE = 4 + 4;
+    private static final int KEY_SIZE = 4 + 4 + 4 + 4 + 1 + 4 + 4;
+    private static final int SIZE = HEADER_SIZE + KEY_SIZE + LayoutSpec.FIELDS * 4;
+
+    /**
+     * Everything a {@link LayoutSpec} is derived from. The locale decides whether the date is
+     * drawn with the bundled font or the system one, which have different metrics.
+     */
+    public static final class Key {
+
+        final int width;
+        final int height;
+        final float density;
+        final float scaledDensity;
+        final boolean round;
+        final int fontVersion;
+        final int locale;
+
+        public Key(int width, int height, float density, float scaledDensity, boolean round,
+                   int fontVersion, String locale) {
+
+            this.width = width;
+            this.height = height;
+            this.density = density;
+            this.scaledDensity = scaledDensity;
+            this.round = round;
+            this.fontVersion = fontVersion;
+            this.locale = locale.hashCode();
+        }
+
+        void write(DataOutputStream out) throws IOException {
+
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeFloat(density);
+            out.writeFloat(scaledDensity);
+            out.writeBoolean(round);
+            out.writeInt(fontVersion);
+            out.writeInt(locale);
+        }
+
+        boolean matches(DataInputStream in) throws IOException {
+
+            return in.readInt() == width
+                    && in.readInt() == height
+                    && in.readFloat() == density
+                    && in.readFloat() == scaledDensity
+                    && in.readBoolean() == round
+                    && in.readInt() == fontVersion
+                    && in.readInt() == locale;
+        }
+    }
+
+    private final File file;
+
+    public LayoutSpecCache(File file) {
+
+        this.file = file;
+    }
+
+    /**
+     * Fills {@code out} with the stored spec if it was computed for {@code key}
+     *
+     * @return false, leaving {@code out} untouched, if there is no usable spec for the key
+     */
+    public boolean load(Key key, LayoutSpec out) {
+
+        if (file.length() != SIZE) return false;
+
+        byte[] bytes = new byte[SIZE];
+
+        try (FileInputStream in = new FileInputStream(file)) {
+
+            int read = 0;
+            while (read < SIZE) {
+                int n = in.read(bytes, read, SIZE - read);
+                if (n < 0) return false;
+                read += n;
+            }
+
+        } catch (IOException e) {
+            return false;
+        }
+
+        try {
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return false;
+            if (!key.matches(in)) return false;
+
+            out.read(in);
+
+            return true;
+
+        } catch (IOException e) {
+            // Cannot happen with the size checked up front
+            return false;
+        }
+    }
+
+    /**
+     * Stores {@code spec} for {@code key}, replacing the file in one rename so a reader never
+     * sees it half written.
+     *
+     * @return false if it could not be written, the next start recomputes the spec then
+     */
+    public boolean store(Key key, LayoutSpec spec) {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(SIZE);
+
+        try {
+
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            key.write(out);
+            spec.write(out);
+
+        } catch (IOException e) {
+            return false;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+
+            bytes.writeTo(out);
+
+        } catch (IOException e) {
+            temp.delete();
+            return false;
+        }
+
+        return temp.renameTo(file);
+    }
+}
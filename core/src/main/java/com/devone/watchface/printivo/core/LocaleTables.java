@@ -0,0 +1,79 @@
+package com.devone.watchface.printivo.core;
+
+import java.text.DateFormatSymbols;
+import java.util.Locale;
+
+/**
+ * The locale dependent strings of the watch face, resolved once per locale into {@code char[]}
+ * tables: month abbreviations and AM/PM markers, plus the locale independent two digit numbers.
+ * <p/>
+ * Tables are immutable; when the locale changes the owner builds new ones with
+ * {@link #forLocale(Locale)} and hands them to {@link ClockText#setTables(LocaleTables)}.
+ */
+public final class LocaleTables {
+
+    /** "00" to "99", number n at [n * 2, n * 2 + 2) */
+    static final char[] TWO_DIGITS = new char[200];
+
+    static {
+        for (int n = 0; n < 100; n++) {
+            TWO_DIGITS[n * 2] = (char) ('0' + n / 10);
+            TWO_DIGITS[n * 2 + 1] = (char) ('0' + n % 10);
+        }
+    }
+
+    public final Locale locale;
+
+    private final char[][] months;
+    private final char[][] ampm;
+
+    private final int longestMonth;
+
+    private LocaleTables(Locale locale) {
+
+        this.locale = locale;
+
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+
+        String[] shortMonths = symbols.getShortMonths();
+        String[] amPmStrings = symbols.getAmPmStrings();
+
+        int longest = 0;
+
+        months = new char[12][];
+        for (int i = 0; i < months.length; i++) {
+            months[i] = shortMonths[i].toCharArray();
+            longest = Math.max(longest, months[i].length);
+        }
+
+        longestMonth = longest;
+
+        ampm = new char[][]{amPmStrings[0].toCharArray(), amPmStrings[1].toCharArray()};
+    }
+
+    public static LocaleTables forLocale(Locale locale) {
+
+        return new LocaleTables(locale);
+    }
+
+    /**
+     * @param month zero based month as returned by {@link java.util.Calendar#MONTH}
+     */
+    public char[] month(int month) {
+
+        return months[month];
+    }
+
+    /**
+     * @param amPm {@link java.util.Calendar#AM} or {@link java.util.Calendar#PM}
+     */
+    public char[] ampm(int amPm) {
+
+        return ampm[amPm];
+    }
+
+    public int longestMonth() {
+
+        return longestMonth;
+    }
+}
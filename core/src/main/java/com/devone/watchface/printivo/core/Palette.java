@@ -0,0 +1,47 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * The colors of the watch face.
+ */
+public class Palette {
+
+    public static final int BLACK = 0xFF000000;
+    public static final int WHITE = 0xFFFFFFFF;
+
+    public final int background;
+    public final int ambientBackground;
+
+    /** Date and time text */
+    public final int alt;
+    public final int ambientText;
+
+    /** Logo text and innermost ring */
+    public final int base;
+    public final int yellow;
+    public final int pink;
+    public final int blue;
+
+    /** Logo text and the logo "i" in ambient mode */
+    public final int ambientP;
+    public final int ambientI;
+
+    public Palette(int alt, int base, int yellow, int pink, int blue, int ambientP, int ambientI) {
+
+        this(WHITE, BLACK, alt, WHITE, base, yellow, pink, blue, ambientP, ambientI);
+    }
+
+    public Palette(int background, int ambientBackground, int alt, int ambientText,
+                   int base, int yellow, int pink, int blue, int ambientP, int ambientI) {
+
+        this.background = background;
+        this.ambientBackground = ambientBackground;
+        this.alt = alt;
+        this.ambientText = ambientText;
+        this.base = base;
+        this.yellow = yellow;
+        this.pink = pink;
+        this.blue = blue;
+        this.ambientP = ambientP;
+        this.ambientI = ambientI;
+    }
+}
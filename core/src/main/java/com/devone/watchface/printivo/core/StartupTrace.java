@@ -0,0 +1,81 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Timeline of an engine start, from the engine being requested to its first complete frame.
+ * <p/>
+ * Every stage is marked once with {@link System#nanoTime()}, later marks of the same stage are
+ * ignored. Stages may be marked from different threads as long as the timeline is only read after
+ * the thread that marked them handed over to the reader.
+ */
+public class StartupTrace {
+
+    /** The engine was created and the placeholder can be drawn */
+    public static final int STAGE_ENGINE = 0;
+    /** The first placeholder frame was drawn */
+    public static final int STAGE_PLACEHOLDER = 1;
+    /** The typefaces finished loading */
+    public static final int STAGE_FONTS = 2;
+    /** Paints, atlases, profiles and rasters are ready */
+    public static final int STAGE_RESOURCES = 3;
+    /** The first complete frame was drawn */
+    public static final int STAGE_FRAME = 4;
+
+    public static final int STAGES = 5;
+
+    private static final String[] NAMES = {"engine", "placeholder", "fonts", "resources", "frame"};
+
+    private final long start;
+    private final long[] marks = new long[STAGES];
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the engine was requested
+     */
+    public StartupTrace(long startNanos) {
+
+        start = startNanos;
+
+        for (int i = 0; i < STAGES; i++) marks[i] = -1;
+    }
+
+    public void mark(int stage, long nanos) {
+
+        if (marks[stage] < 0) marks[stage] = Math.max(0, nanos - start);
+    }
+
+    /**
+     * @return nanoseconds from the start to {@code stage}, or -1 if it has not been reached
+     */
+    public long elapsed(int stage) {
+
+        return marks[stage];
+    }
+
+    public boolean isComplete() {
+
+        return marks[STAGE_FRAME] >= 0;
+    }
+
+    /**
+     * Writes "startup engine 1.20 placeholder 9.80 fonts 31.05 resources 48.00 frame 55.13ms"
+     * into {@code out} and returns its length. Stages not reached yet are written as "-".
+     */
+    public int format(char[] out) {
+
+        int i = Chars.append(out, 0, "startup");
+
+        for (int stage = 0; stage < STAGES; stage++) {
+
+            out[i++] = ' ';
+            i = Chars.append(out, i, NAMES[stage]);
+            out[i++] = ' ';
+
+            if (marks[stage] < 0) {
+                out[i++] = '-';
+            } else {
+                i = Chars.appendMillis(out, i, marks[stage]);
+            }
+        }
+
+        return Chars.append(out, i, "ms");
+    }
+}
@@ -0,0 +1,157 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Small spatial index of the tappable regions of the face.
+ * <p/>
+ * Regions are rectangles or circles. {@link #build(float, float)} buckets them into a coarse grid
+ * over the screen, every cell holding a bit mask of the regions overlapping it, so a hit test only
+ * checks the few regions of the cell the tap falls in. Where regions overlap the one added last
+ * wins.
+ */
+public class TapRegions {
+
+    public static final int NONE = -1;
+
+    /** Regions are kept in a bit mask per cell */
+    private static final int MAX_REGIONS = 32;
+
+    private static final int GRID = 8;
+
+    private static final int RECT = 0;
+    private static final int CIRCLE = 1;
+
+    private final int[] ids = new int[MAX_REGIONS];
+    private final int[] shapes = new int[MAX_REGIONS];
+
+    // Per region: left, top, right, bottom for rectangles; cx, cy, radius for circles
+    private final float[] geometry = new float[MAX_REGIONS * 4];
+
+    private final int[] cells = new int[GRID * GRID];
+
+    private int size;
+
+    private float cellWidth = 1;
+    private float cellHeight = 1;
+
+    public void clear() {
+
+        size = 0;
+
+        for (int i = 0; i < cells.length; i++) cells[i] = 0;
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    public void addRect(int id, float left, float top, float right, float bottom) {
+
+        int g = add(id, RECT);
+
+        geometry[g] = left;
+        geometry[g + 1] = top;
+        geometry[g + 2] = right;
+        geometry[g + 3] = bottom;
+    }
+
+    public void addCircle(int id, float cx, float cy, float radius) {
+
+        int g = add(id, CIRCLE);
+
+        geometry[g] = cx;
+        geometry[g + 1] = cy;
+        geometry[g + 2] = radius;
+    }
+
+    /**
+     * Buckets the regions added so far into the grid over a {@code width} x {@code height}
+     * screen. Must be called after adding regions and before {@link #hit(float, float)}.
+     */
+    public void build(float width, float height) {
+
+        cellWidth = Math.max(1, width / GRID);
+        cellHeight = Math.max(1, height / GRID);
+
+        for (int i = 0; i < cells.length; i++) cells[i] = 0;
+
+        for (int r = 0; r < size; r++) {
+
+            int g = r * 4;
+            float left, top, right, bottom;
+
+            if (shapes[r] == RECT) {
+                left = geometry[g];
+                top = geometry[g + 1];
+                right = geometry[g + 2];
+                bottom = geometry[g + 3];
+            } else {
+                left = geometry[g] - geometry[g + 2];
+                top = geometry[g + 1] - geometry[g + 2];
+                right = geometry[g] + geometry[g + 2];
+                bottom = geometry[g + 1] + geometry[g + 2];
+            }
+
+            int fromX = column(left), toX = column(right);
+            int fromY = row(top), toY = row(bottom);
+
+            for (int y = fromY; y <= toY; y++) {
+                for (int x = fromX; x <= toX; x++) cells[y * GRID + x] |= 1 << r;
+            }
+        }
+    }
+
+    /**
+     * @return the id of the region at ({@code x}, {@code y}) or {@link #NONE}
+     */
+    public int hit(float x, float y) {
+
+        int candidates = cells[row(y) * GRID + column(x)];
+
+        // Later regions win so test them first
+        while (candidates != 0) {
+
+            int r = 31 - Integer.numberOfLeadingZeros(candidates);
+            candidates &= ~(1 << r);
+
+            if (contains(r, x, y)) return ids[r];
+        }
+
+        return NONE;
+    }
+
+    private int add(int id, int shape) {
+
+        if (size == MAX_REGIONS) throw new IllegalStateException("Too many tap regions");
+
+        ids[size] = id;
+        shapes[size] = shape;
+
+        return size++ * 4;
+    }
+
+    private boolean contains(int r, float x, float y) {
+
+        int g = r * 4;
+
+        if (shapes[r] == RECT) {
+            return x >= geometry[g] && x < geometry[g + 2]
+                    && y >= geometry[g + 1] && y < geometry[g + 3];
+        }
+
+        float dx = x - geometry[g];
+        float dy = y - geometry[g + 1];
+
+        return dx * dx + dy * dy <= geometry[g + 2] * geometry[g + 2];
+    }
+
+    private int column(float x) {
+
+        return Math.min(GRID - 1, Math.max(0, (int) (x / cellWidth)));
+    }
+
+    private int row(float y) {
+
+        return Math.min(GRID - 1, Math.max(0, (int) (y / cellHeight)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Remembers the previously drawn text so the next frame can tell which of its chars changed.
+ * <p/>
+ * The text is compared with an extra {@code tag} (e.g. AM/PM) that is drawn after it, so a
+ * change of the tag marks everything after the last char as changed.
+ */
+public class TextDiff {
+
+    public final char[] text;
+    public int length;
+    public int tag;
+
+    private boolean empty = true;
+
+    public TextDiff(int capacity) {
+
+        text = new char[capacity];
+    }
+
+    /**
+     * @return the index of the first char that differs from the remembered text, {@code -1} if
+     * nothing changed or {@code 0} when nothing is remembered yet
+     */
+    public int firstDifference(char[] other, int otherLength, int otherTag) {
+
+        if (empty) return 0;
+
+        int common = Math.min(length, otherLength);
+
+        for (int i = 0; i < common; i++) {
+            if (text[i] != other[i]) return i;
+        }
+
+        if (length != otherLength || tag != otherTag) return common;
+
+        return -1;
+    }
+
+    public void set(char[] other, int otherLength, int otherTag) {
+
+        System.arraycopy(other, 0, text, 0, otherLength);
+        length = otherLength;
+        tag = otherTag;
+        empty = false;
+    }
+
+    public void clear() {
+
+        empty = true;
+        length = 0;
+    }
+}
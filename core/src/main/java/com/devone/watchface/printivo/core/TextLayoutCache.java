@@ -0,0 +1,145 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Small cache of measured text layouts, independent of the platform's layout and paint types.
+ * <p/>
+ * Layouts are keyed by their text content, the paint state that affects measuring and drawing
+ * (color, typeface, text size and flags such as anti-aliasing), the ambient mode and the width
+ * they were laid out for. A layout draws with the paint it was built with, so two paints that
+ * only differ in their flags still need their own layouts. A lookup that matches an existing
+ * entry reuses its layout; otherwise the least recently used entry is rebuilt in place by
+ * {@link #build(CharSequence, Object, int)}.
+ *
+ * @param <P> the paint layouts are built with
+ * @param <L> the layout
+ */
+public abstract class TextLayoutCache<P, L> {
+
+    private final Entry<L>[] entries;
+
+    private long clock;
+
+    private int hits;
+    private int misses;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected TextLayoutCache(int capacity) {
+
+        entries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) entries[i] = new Entry<>();
+    }
+
+    /**
+     * Lays out {@code text} with {@code paint}, which must be in the state described by the
+     * other key arguments
+     */
+    protected abstract L build(CharSequence text, P paint, int width);
+
+    public L obtain(CharSequence text, P paint, int color, Object typeface, float size,
+                    int flags, boolean ambient, int width) {
+
+        Entry<L> oldest = entries[0];
+
+        for (Entry<L> entry : entries) {
+
+            if (entry.matches(text, color, typeface, size, flags, ambient, width)) {
+                entry.used = ++clock;
+                hits++;
+                return entry.layout;
+            }
+
+            if (entry.used < oldest.used) oldest = entry;
+        }
+
+        misses++;
+
+        oldest.text = text;
+        oldest.color = color;
+        oldest.typeface = typeface;
+        oldest.size = size;
+        oldest.flags = flags;
+        oldest.ambient = ambient;
+        oldest.width = width;
+        oldest.layout = build(text, paint, width);
+        oldest.used = ++clock;
+
+        return oldest.layout;
+    }
+
+    public void clear() {
+
+        for (Entry<L> entry : entries) {
+            entry.text = null;
+            entry.layout = null;
+            entry.used = 0;
+        }
+    }
+
+    /** Lookups that reused a layout */
+    public int hits() {
+
+        return hits;
+    }
+
+    /** Lookups that had to build one */
+    public int misses() {
+
+        return misses;
+    }
+
+    /**
+     * Writes "layouts 12 hit 3 miss" into {@code out} at {@code index} and returns the new length
+     */
+    public int format(char[] out, int index) {
+
+        int i = Chars.append(out, index, "layouts ");
+        i = Chars.append(out, i, hits);
+        i = Chars.append(out, i, " hit ");
+        i = Chars.append(out, i, misses);
+
+        return Chars.append(out, i, " miss");
+    }
+
+    /**
+     * Compares the characters only, like the platform's {@code TextUtils.equals}
+     */
+    static boolean contentEquals(CharSequence a, CharSequence b) {
+
+        if (a == b) return true;
+        if (a == null || b == null || a.length() != b.length()) return false;
+
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+
+    private static class Entry<L> {
+
+        CharSequence text;
+        int color;
+        Object typeface;
+        float size;
+        int flags;
+        boolean ambient;
+        int width;
+
+        L layout;
+        long used;
+
+        boolean matches(CharSequence text, int color, Object typeface, float size, int flags,
+                        boolean ambient, int width) {
+
+            return layout != null
+                    && this.color == color
+                    && this.typeface == typeface
+                    && this.size == size
+                    && this.flags == flags
+                    && this.ambient == ambient
+                    && this.width == width
+                    && contentEquals(this.text, text);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Hands a theme selected on one thread over to the thread that renders, and measures what
+ * switching costs.
+ * <p/>
+ * Themes are compiled up front, so switching is meant to be a reference swap. {@link #select(int)}
+ * only records the request; the renderer picks it up in {@link #beginFrame(long)} at the start of
+ * its next frame, swaps its references and {@link #endFrame(long)} records how long that first
+ * frame of the new theme took, including whatever it had to redraw for it.
+ */
+public class ThemeSwitcher {
+
+    private final int count;
+
+    private volatile int requested;
+
+    // Owned by the rendering thread
+    private int current;
+    private long switchStart = -1;
+    private long lastSwitch = -1;
+    private long maxSwitch;
+    private int switches;
+
+    public ThemeSwitcher(int count, int initial) {
+
+        if (count <= 0) throw new IllegalArgumentException("No themes");
+
+        this.count = count;
+
+        requested = clamp(initial);
+        current = requested;
+    }
+
+    public int count() {
+
+        return count;
+    }
+
+    /**
+     * Requests theme {@code index}, out of range indices fall back to the first theme. Safe to
+     * call from any thread.
+     */
+    public void select(int index) {
+
+        requested = clamp(index);
+    }
+
+    /**
+     * Requests the theme after the requested one, wrapping around
+     *
+     * @return the index requested
+     */
+    public int selectNext() {
+
+        int next = (requested + 1) % count;
+        requested = next;
+
+        return next;
+    }
+
+    /**
+     * The theme last requested, not necessarily the one rendered yet
+     */
+    public int requested() {
+
+        return requested;
+    }
+
+    /**
+     * The theme the renderer currently draws with
+     */
+    public int current() {
+
+        return current;
+    }
+
+    /**
+     * Starts a frame, taking over the requested theme
+     *
+     * @return true if it differs from the one of the previous frame, the renderer has to swap to
+     * {@link #current()} then
+     */
+    public boolean beginFrame(long nanos) {
+
+        int next = requested;
+
+        if (next == current) return false;
+
+        current = next;
+        switchStart = nanos;
+
+        return true;
+    }
+
+    public void endFrame(long nanos) {
+
+        if (switchStart < 0) return;
+
+        lastSwitch = nanos - switchStart;
+        maxSwitch = Math.max(maxSwitch, lastSwitch);
+        switchStart = -1;
+        switches++;
+    }
+
+    /**
+     * @return nanoseconds the first frame after the last switch took, -1 before the first switch
+     */
+    public long lastSwitchNanos() {
+
+        return lastSwitch;
+    }
+
+    public int switches() {
+
+        return switches;
+    }
+
+    /**
+     * Writes "theme 2/3 switches 4 last 3.20 max 5.10ms" into {@code out} and returns its length
+     */
+    public int format(char[] out) {
+
+        int i = Chars.append(out, 0, "theme ");
+        i = Chars.append(out, i, current + 1);
+        out[i++] = '/';
+        i = Chars.append(out, i, count);
+        i = Chars.append(out, i, " switches ");
+        i = Chars.append(out, i, switches);
+        i = Chars.append(out, i, " last ");
+
+        if (lastSwitch < 0) {
+            out[i++] = '-';
+        } else {
+            i = Chars.appendMillis(out, i, lastSwitch);
+        }
+
+        i = Chars.append(out, i, " max ");
+        i = Chars.appendMillis(out, i, maxSwitch);
+
+        return Chars.append(out, i, "ms");
+    }
+
+    private int clamp(int index) {
+
+        return index >= 0 && index < count ? index : 0;
+    }
+}
@@ -0,0 +1,240 @@
+package com.devone.watchface.printivo.core;
+
+/**
+ * Schedules update ticks on wall clock boundaries of the current period (a second or a minute).
+ * <p/>
+ * Handler delays only promise a lower bound, every tick wakes up some milliseconds after it was
+ * due. The scheduler measures that wake latency and asks for the next tick earlier by a smoothed
+ * estimate of it, so ticks land just after the boundary instead of drifting behind it. A tick that
+ * still fires before its boundary is reported as early and rescheduled for exactly the boundary,
+ * without a lead, so it cannot wake early again and spin. Early wakes are left out of the
+ * estimate, their near zero latency would only shrink it.
+ * <p/>
+ * How late every tick fired after its boundary is kept in a fixed size histogram with power of
+ * two millisecond buckets, so the latency/power trade-off of a rate can be tuned from real data.
+ */
+public class TickScheduler {
+
+    public static final long SECOND = 1000;
+    public static final long MINUTE = 60 * SECOND;
+
+    /** Bucket i holds latenesses in [2^i, 2^(i+1)) ms, bucket 0 also holds 0 */
+    private static final int BUCKETS = 17;
+
+    /** Weight of a new latency sample in the estimate, as a shift: 1/8 */
+    private static final int SMOOTHING = 3;
+
+    private long period;
+
+    // The boundary the pending tick is for and when it was asked to fire
+    private long due = -1;
+    private long requested;
+
+    // The pending tick woke early, the next schedule is for the same boundary
+    private boolean retry;
+
+    // Wake latency estimate in 1/8 ms
+    private long latency;
+
+    private long lateness;
+
+    private long ticks;
+    private long early;
+    private long missed;
+    private long total;
+    private long max;
+    private final long[] buckets = new long[BUCKETS];
+
+    public TickScheduler(long periodMs) {
+
+        setPeriod(periodMs);
+    }
+
+    /**
+     * Changes the tick rate. Takes effect from the next {@link #schedule(long)}.
+     */
+    public void setPeriod(long periodMs) {
+
+        if (periodMs <= 0) throw new IllegalArgumentException("period must be positive");
+
+        period = periodMs;
+    }
+
+    public long period() {
+
+        return period;
+    }
+
+    /**
+     * Picks the next boundary after {@code nowMs} and returns the delay after which the tick for
+     * it should be posted, already shortened by the expected wake latency. After an early tick
+     * it keeps the boundary and returns the time left until it.
+     */
+    public long schedule(long nowMs) {
+
+        long delay;
+
+        if (retry && nowMs < due) {
+
+            delay = due - nowMs;
+
+        } else {
+
+            due = (nowMs / period + 1) * period;
+            delay = Math.max(0, due - nowMs - lead());
+        }
+
+        retry = false;
+
+        requested = nowMs + delay;
+
+        return delay;
+    }
+
+    /**
+     * Forgets the pending tick, e.g. when the timer is stopped
+     */
+    public void cancel() {
+
+        due = -1;
+        retry = false;
+    }
+
+    /**
+     * Records that the pending tick fired at {@code nowMs} and updates the latency estimate.
+     *
+     * @return false if it fired before its boundary; the caller should {@link #schedule(long)}
+     * again (which picks the same boundary) instead of updating
+     */
+    public boolean onTick(long nowMs) {
+
+        if (due < 0) return true;
+
+        if (nowMs < due) {
+            early++;
+            retry = true;
+            return false;
+        }
+
+        // How much later than asked the tick woke up, regardless of the boundary. A whole period
+        // or more means the device was stalled rather than slow to wake, that is left out.
+        long wake = Math.max(0, nowMs - requested);
+        if (wake < period) latency += ((wake << SMOOTHING) - latency) >> SMOOTHING;
+
+        lateness = nowMs - due;
+
+        ticks++;
+        total += lateness;
+        if (lateness > max) max = lateness;
+        if (lateness >= period) missed++;
+
+        buckets[bucket(lateness)]++;
+
+        due = -1;
+
+        return true;
+    }
+
+    /**
+     * How much earlier than the boundary the next tick is requested. Only three quarters of the
+     * latency estimate so jitter rarely wakes a tick early, and never more than a quarter period.
+     */
+    public long lead() {
+
+        long estimate = latency >> SMOOTHING;
+
+        return Math.min(estimate - estimate / 4, period / 4);
+    }
+
+    /** How late after its boundary the last tick fired */
+    public long lateness() {
+
+        return lateness;
+    }
+
+    /** Ticks that fired on or after their boundary */
+    public long ticks() {
+
+        return ticks;
+    }
+
+    /** Ticks that woke before their boundary and had to be rescheduled */
+    public long early() {
+
+        return early;
+    }
+
+    /** Ticks that fired a whole period (or more) late, i.e. skipped at least one update */
+    public long missed() {
+
+        return missed;
+    }
+
+    public long meanLateness() {
+
+        return ticks == 0 ? 0 : total / ticks;
+    }
+
+    public long maxLateness() {
+
+        return max;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound in milliseconds of the bucket the percentile falls in
+     */
+    public long percentileLateness(int percentile) {
+
+        if (ticks == 0) return 0;
+
+        long rank = Math.max(1, (ticks * percentile + 99) / 100);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return Math.min(max, (1L << (i + 1)) - 1);
+        }
+
+        return max;
+    }
+
+    public void reset() {
+
+        ticks = 0;
+        early = 0;
+        missed = 0;
+        total = 0;
+        max = 0;
+
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = 0;
+    }
+
+    /**
+     * Writes "tick 1000ms lead 3 late 50% 3 99% 15 max 40 early 2" into {@code out} and returns
+     * its length.
+     */
+    public int format(char[] out) {
+
+        int i = Chars.append(out, 0, "tick ");
+        i = Chars.append(out, i, period);
+        i = Chars.append(out, i, "ms lead ");
+        i = Chars.append(out, i, lead());
+        i = Chars.append(out, i, " late 50% ");
+        i = Chars.append(out, i, percentileLateness(50));
+        i = Chars.append(out, i, " 99% ");
+        i = Chars.append(out, i, percentileLateness(99));
+        i = Chars.append(out, i, " max ");
+        i = Chars.append(out, i, max);
+        i = Chars.append(out, i, " early ");
+        i = Chars.append(out, i, early);
+
+        return i;
+    }
+
+    private static int bucket(long millis) {
+
+        int bucket = 63 - Long.numberOfLeadingZeros(millis | 1);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClockStateTest {
+
+    private static final String[] ZONES = {
+            "Africa/Lagos", "America/New_York", "Europe/London", "Australia/Lord_Howe",
+            "Asia/Kathmandu", "America/St_Johns", "Pacific/Chatham", "UTC"
+    };
+
+    @Test
+    public void matchesCalendarAcrossZonesAndTransitions() throws Exception {
+
+        Random random = new Random(42);
+
+        for (String id : ZONES) {
+
+            TimeZone zone = TimeZone.getTimeZone(id);
+
+            ClockState clock = new ClockState(zone);
+            Calendar calendar = Calendar.getInstance(zone);
+
+            // Random jumps in both directions between 1960 and 2060
+            long time = 0;
+            for (int i = 0; i < 20000; i++) {
+
+                time = -315619200000L + (long) (random.nextDouble() * 3155760000000L);
+                check(clock, calendar, time);
+            }
+
+            // Walk second by second over two days to cross midnight and any transition
+            time = 1459641600000L;
+            for (int i = 0; i < 2 * 86400; i++) {
+                check(clock, calendar, time);
+                time += 997;
+            }
+        }
+    }
+
+    @Test
+    public void recomputesOnlyOnRollover() throws Exception {
+
+        ClockState clock = new ClockState(TimeZone.getTimeZone("Africa/Lagos"));
+
+        // 2016-07-04 00:00:00 in Lagos (UTC+1)
+        long midnight = 1467586800000L;
+
+        for (long t = midnight; t < midnight + 3 * 60 * 1000; t += 1000) clock.setTime(t);
+
+        assertEquals(3, clock.minuteRollovers());
+        assertEquals(1, clock.dayRollovers());
+        assertEquals(4, clock.dayOfMonth);
+        assertEquals(Calendar.JULY, clock.month);
+
+        clock.setTimeZone(TimeZone.getTimeZone("UTC"));
+        clock.setTime(midnight);
+
+        assertEquals(23, clock.hourOfDay);
+        assertEquals(3, clock.dayOfMonth);
+    }
+
+    private static void check(ClockState clock, Calendar calendar, long time) {
+
+        clock.setTime(time);
+        calendar.setTimeInMillis(time);
+
+        String at = calendar.getTimeZone().getID() + " " + time;
+
+        assertEquals(at, calendar.get(Calendar.HOUR_OF_DAY), clock.hourOfDay);
+        assertEquals(at, calendar.get(Calendar.HOUR), clock.hour);
+        assertEquals(at, calendar.get(Calendar.AM_PM), clock.amPm);
+        assertEquals(at, calendar.get(Calendar.MINUTE), clock.minute);
+        assertEquals(at, calendar.get(Calendar.SECOND), clock.second);
+        assertEquals(at, calendar.get(Calendar.DATE), clock.dayOfMonth);
+        assertEquals(at, calendar.get(Calendar.MONTH), clock.month);
+        assertEquals(at, calendar.get(Calendar.YEAR), clock.year);
+    }
+}
@@ -0,0 +1,81 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit test for {@link ClockText}, executed on the development machine (host).
+ */
+public class ClockTextTest {
+
+    @Test
+    public void formatsTimeAndDate() throws Exception {
+
+        ClockText text = new ClockText(Locale.US);
+
+        text.setTime(9, 5, 7, true);
+        assertEquals("9:05:07", new String(text.time, 0, text.timeLength));
+
+        text.setTime(11, 59, 0, false);
+        assertEquals("11:59", new String(text.time, 0, text.timeLength));
+
+        text.setDate(3, Calendar.FEBRUARY);
+        assertEquals("03 Feb", new String(text.date, 0, text.dateLength));
+
+        assertEquals("PM", new String(text.ampm(Calendar.PM)));
+    }
+
+    @Test
+    public void rewritesDateOnlyWhenItChanges() throws Exception {
+
+        ClockText text = new ClockText(Locale.US);
+
+        assertTrue(text.setDate(3, Calendar.FEBRUARY));
+        assertFalse(text.setDate(3, Calendar.FEBRUARY));
+        assertTrue(text.setDate(4, Calendar.FEBRUARY));
+
+        text.setTables(LocaleTables.forLocale(Locale.GERMANY));
+        assertTrue(text.setDate(4, Calendar.MARCH));
+        String march = DateFormatSymbols.getInstance(Locale.GERMANY).getShortMonths()[2];
+        assertEquals("04 " + march, new String(text.date, 0, text.dateLength));
+    }
+
+    @Test
+    public void doesNotAllocatePerFrame() throws Exception {
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        ClockText text = new ClockText(Locale.US);
+
+        // Warm up so that any lazy JIT/class loading allocations are out of the way
+        frames(text, 100000);
+
+        int frames = 86400;
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        frames(text, frames);
+        long after = threads.getThreadAllocatedBytes(thread);
+
+        // getThreadAllocatedBytes itself may allocate a few bytes, but nothing per frame
+        assertEquals(0, (after - before) / frames);
+    }
+
+    private static void frames(ClockText text, int count) {
+
+        for (int s = 0; s < count; s++) {
+            text.setTime((s / 3600) % 12, (s / 60) % 60, s % 60, true);
+            text.setDate(1 + (s % 28), s % 12);
+            text.ampm(s % 2);
+        }
+    }
+}
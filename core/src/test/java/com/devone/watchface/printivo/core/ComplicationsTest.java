@@ -0,0 +1,160 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ComplicationsTest {
+
+    private static final long MINUTE = 60000;
+
+    /**
+     * Stands in for a provider: a fixed text, or a countdown to {@code eventMs} in whole minutes
+     * that changes on every minute boundary.
+     */
+    private static class FakeProvider implements ComplicationSlot.Content {
+
+        final String text;
+        final long eventMs;
+
+        int reads;
+
+        FakeProvider(String text) {
+
+            this.text = text;
+            this.eventMs = -1;
+        }
+
+        FakeProvider(long eventMs) {
+
+            this.text = null;
+            this.eventMs = eventMs;
+        }
+
+        @Override
+        public int type() {
+
+            return ComplicationSlot.TYPE_TEXT;
+        }
+
+        @Override
+        public int text(long timeMs, char[] out) {
+
+            reads++;
+
+            if (text != null) return Chars.appendClipped(out, 0, text);
+
+            int i = Chars.append(out, 0, Math.max(0, (eventMs - timeMs + MINUTE - 1) / MINUTE));
+            return Chars.append(out, i, "m");
+        }
+
+        @Override
+        public int title(long timeMs, char[] out) {
+
+            return 0;
+        }
+
+        @Override
+        public float value() {
+
+            return 0;
+        }
+
+        @Override
+        public long nextChange(long timeMs) {
+
+            if (text != null || timeMs >= eventMs) return Long.MAX_VALUE;
+
+            return (timeMs / MINUTE + 1) * MINUTE;
+        }
+    }
+
+    @Test
+    public void resentDataDoesNotChangeTheVersion() throws Exception {
+
+        Complications complications = new Complications(7);
+        ComplicationSlot slot = complications.get(0);
+
+        complications.offer(7, new FakeProvider("72%"), false);
+        assertTrue(complications.update(0));
+        assertEquals(1, slot.version());
+        assertEquals("72%", new String(slot.text, 0, slot.textLength));
+
+        // Same output from a new update: read but not re-rendered
+        complications.offer(7, new FakeProvider("72%"), false);
+        assertFalse(complications.update(1000));
+        assertEquals(1, slot.version());
+
+        complications.offer(7, new FakeProvider("71%"), false);
+        assertTrue(complications.update(2000));
+        assertEquals(2, slot.version());
+
+        // Nothing new, nothing read
+        assertFalse(complications.update(3000));
+
+        complications.offer(7, null, false);
+        assertTrue(complications.update(4000));
+        assertTrue(slot.isEmpty());
+        assertEquals(3, slot.version());
+    }
+
+    @Test
+    public void timeDependentTextIsOnlyReadAtItsBoundaries() throws Exception {
+
+        Complications complications = new Complications(1);
+        ComplicationSlot slot = complications.get(0);
+
+        FakeProvider countdown = new FakeProvider(10 * MINUTE);
+
+        complications.offer(1, countdown, false);
+        complications.update(5 * MINUTE + 30000);
+        assertEquals("5m", new String(slot.text, 0, slot.textLength));
+        assertEquals(1, countdown.reads);
+
+        // Every second of the same minute
+        for (long t = 5 * MINUTE + 31000; t < 6 * MINUTE; t += 1000) {
+            assertFalse(complications.update(t));
+        }
+        assertEquals(1, countdown.reads);
+
+        assertTrue(complications.update(6 * MINUTE));
+        assertEquals("4m", new String(slot.text, 0, slot.textLength));
+        assertEquals(2, countdown.reads);
+        assertEquals(2, slot.version());
+
+        // Past the event the text stays "0m" and is not read again
+        complications.update(10 * MINUTE);
+        complications.update(11 * MINUTE);
+        complications.update(12 * MINUTE);
+        assertEquals(3, countdown.reads);
+        assertEquals("0m", new String(slot.text, 0, slot.textLength));
+    }
+
+    @Test
+    public void ambientUpdatesWaitForTheNextFrame() throws Exception {
+
+        Complications complications = new Complications(1, 2);
+
+        assertTrue(complications.offer(1, new FakeProvider("3 km"), false));
+
+        assertFalse(complications.offer(2, new FakeProvider("12"), true));
+        assertFalse(complications.offer(2, new FakeProvider("13"), true));
+        assertTrue(complications.hasPending());
+
+        // Unknown complications are ignored
+        assertFalse(complications.offer(3, new FakeProvider("x"), false));
+
+        // The next frame takes only the latest data
+        assertTrue(complications.update(0));
+        assertFalse(complications.hasPending());
+        assertEquals("13", new String(complications.get(1).text, 0,
+                complications.get(1).textLength));
+        assertEquals(1, complications.get(1).version());
+
+        char[] line = new char[64];
+        int length = complications.format(line);
+        assertEquals("complications redraws 1 deferred 2", new String(line, 0, length));
+    }
+}
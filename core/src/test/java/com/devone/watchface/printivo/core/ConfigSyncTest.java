@@ -0,0 +1,265 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigSyncTest {
+
+    /**
+     * Records what the watch face would apply
+     */
+    private static class Watch implements ConfigReceiver.Listener {
+
+        final ConfigReceiver receiver = new ConfigReceiver(this);
+
+        int changes;
+        int fields;
+
+        @Override
+        public void onConfigLoaded(Config config) {
+        }
+
+        @Override
+        public void onConfigChanged(Config config, int fields) {
+
+            changes++;
+            this.fields |= fields;
+        }
+    }
+
+    private static ConfigSender phone(FakeDataLayer layer) {
+
+        return sender(layer, new Watch());
+    }
+
+    private static ConfigSender sender(FakeDataLayer layer, Watch synced) {
+
+        DataChannel channel = layer.channel();
+
+        channel.subscribe(ConfigReceiver.PATH_PREFIX, synced.receiver);
+
+        return new ConfigSender(channel, synced.receiver);
+    }
+
+    @Test
+    public void encodesOnlyTheChangedFields() throws Exception {
+
+        Config config = new Config();
+        config.set(Config.THEME, 2);
+        config.set(Config.SHOW_SECONDS, -1);
+
+        byte[] delta = ConfigCodec.encode(9, false, config, 1 << Config.THEME);
+        assertEquals(5, delta.length);
+
+        ConfigCodec.Batch batch = ConfigCodec.decode(delta);
+        assertEquals(9, batch.sequence);
+        assertFalse(batch.full);
+        assertEquals(1 << Config.THEME, batch.fields);
+
+        Config out = new Config();
+        assertEquals(1 << Config.THEME, batch.applyTo(out));
+        assertEquals(2, out.get(Config.THEME));
+        assertEquals(1, out.get(Config.SHOW_SECONDS));
+
+        // Negative values survive the zigzag encoding
+        ConfigCodec.decode(ConfigCodec.encode(300, true, config, 0)).applyTo(out);
+        assertEquals(-1, out.get(Config.SHOW_SECONDS));
+
+        // Fields from a newer version are skipped, other formats rejected
+        byte[] newer = {ConfigCodec.FORMAT, 0, 1, 40, 2, (byte) Config.THEME, 6};
+        assertEquals(1 << Config.THEME, ConfigCodec.decode(newer).fields);
+        assertNull(ConfigCodec.decode(new byte[]{2, 0, 1}));
+        assertNull(ConfigCodec.decode(new byte[]{ConfigCodec.FORMAT, 0, (byte) 0x80}));
+    }
+
+    @Test
+    public void coalescesRapidEditsIntoOneBatch() throws Exception {
+
+        FakeDataLayer layer = new FakeDataLayer();
+        ConfigSender sender = phone(layer);
+
+        sender.set(Config.THEME, 1, 0);
+        sender.set(Config.THEME, 2, 100);
+        sender.set(Config.SHOW_SECONDS, false, 200);
+
+        assertEquals(ConfigSender.QUIET_MS, sender.delay(200));
+        assertFalse(sender.flush(300));
+        assertTrue(sender.flush(500));
+        assertEquals(-1, sender.delay(500));
+
+        assertEquals(3, sender.edits());
+        assertEquals(1, sender.batches());
+        assertEquals(1, layer.items.size());
+
+        // Continuous edits are still sent after the maximum delay
+        for (long t = 1000; t < 1000 + ConfigSender.MAX_DELAY_MS; t += 100) {
+            sender.set(Config.THEME, (int) (t / 100) % 3, t);
+            assertFalse(sender.flush(t));
+        }
+        assertTrue(sender.flush(1000 + ConfigSender.MAX_DELAY_MS));
+
+        // Edits that cancel out send nothing
+        int theme = sender.config().get(Config.THEME);
+        sender.set(Config.THEME, (theme + 1) % 3, 3000);
+        sender.set(Config.THEME, theme, 3100);
+        sender.flushNow();
+        assertEquals(2, sender.batches());
+    }
+
+    @Test
+    public void watchAppliesBatchesInOrderAndRebuildsFromTheLog() throws Exception {
+
+        FakeDataLayer layer = new FakeDataLayer();
+        ConfigSender sender = phone(layer);
+
+        Watch watch = new Watch();
+        layer.channel().subscribe(ConfigReceiver.PATH_PREFIX, watch.receiver);
+
+        sender.set(Config.THEME, 1, 0);
+        sender.flushNow();
+        sender.set(Config.SHOW_SECONDS, false, 1000);
+        sender.flushNow();
+        sender.set(Config.THEME, 2, 2000);
+        sender.flushNow();
+
+        // Delivered newest first: the deltas wait for the full batch they build on
+        layer.reverse = true;
+        layer.sync();
+
+        assertEquals(3, watch.receiver.sequence());
+        assertEquals(0, watch.receiver.pending());
+        assertEquals(2, watch.receiver.config().get(Config.THEME));
+        assertFalse(watch.receiver.config().getBoolean(Config.SHOW_SECONDS));
+        assertEquals(1, watch.changes);
+
+        // Delivered again, e.g. after reconnecting: nothing changes
+        layer.channel().put(ConfigReceiver.path(2), layer.items.get(ConfigReceiver.path(2)));
+        layer.sync();
+        assertEquals(1, watch.changes);
+
+        // Enough batches to compact the log into a full one
+        for (int i = 0; i < ConfigSender.COMPACT_AFTER; i++) {
+            sender.set(Config.THEME, i % 3, 10000 + i * 1000);
+            sender.flushNow();
+        }
+        layer.sync();
+
+        assertTrue(layer.items.size() < ConfigSender.COMPACT_AFTER);
+
+        // A restarted watch face gets the same config from what is left
+        Watch restarted = new Watch();
+        layer.channel().subscribe(ConfigReceiver.PATH_PREFIX, restarted.receiver);
+
+        assertEquals(0, restarted.receiver.config().diff(watch.receiver.config()));
+        assertEquals(watch.receiver.sequence(), restarted.receiver.sequence());
+
+        // And so does a restarted phone app, which continues the log
+        ConfigSender resumed = phone(layer);
+        resumed.set(Config.SHOW_SECONDS, true, 50000);
+        resumed.flushNow();
+        layer.sync();
+
+        assertTrue(watch.receiver.config().getBoolean(Config.SHOW_SECONDS));
+        assertEquals(0, watch.receiver.pending());
+    }
+
+    @Test
+    public void phoneAndWatchEditsShareOneLog() throws Exception {
+
+        FakeDataLayer layer = new FakeDataLayer();
+
+        Watch phoneState = new Watch();
+        ConfigSender phone = sender(layer, phoneState);
+
+        Watch watch = new Watch();
+        ConfigSender taps = sender(layer, watch);
+
+        phone.set(Config.THEME, 1, 0);
+        phone.flushNow();
+        layer.sync();
+
+        // A tap on the watch continues the log instead of starting over
+        taps.set(Config.SHOW_SECONDS, false, 1000);
+        taps.flushNow();
+        layer.sync();
+
+        assertEquals(2, phoneState.receiver.sequence());
+        assertEquals(1, watch.receiver.config().get(Config.THEME));
+        assertFalse(phoneState.receiver.config().getBoolean(Config.SHOW_SECONDS));
+
+        // The phone shows what was tapped and does not send its old value back
+        phone.rebase();
+        assertFalse(phone.config().getBoolean(Config.SHOW_SECONDS));
+
+        phone.set(Config.THEME, 2, 2000);
+        phone.flushNow();
+        layer.sync();
+
+        assertFalse(watch.receiver.config().getBoolean(Config.SHOW_SECONDS));
+        assertEquals(2, watch.receiver.config().get(Config.THEME));
+
+        // Switching back to a theme the phone sent before is a change again
+        taps.set(Config.THEME, 1, 3000);
+        taps.flushNow();
+        layer.sync();
+
+        phone.rebase();
+        phone.set(Config.THEME, 2, 4000);
+        phone.flushNow();
+        layer.sync();
+
+        assertEquals(2, watch.receiver.config().get(Config.THEME));
+        assertEquals(0, watch.receiver.config().diff(phoneState.receiver.config()));
+
+        // A restarted watch face gets the tapped settings back from the log
+        Watch restarted = new Watch();
+        layer.channel().subscribe(ConfigReceiver.PATH_PREFIX, restarted.receiver);
+
+        assertEquals(0, restarted.receiver.config().diff(watch.receiver.config()));
+    }
+
+    @Test
+    public void devicesAgreeOnCollidingBatches() throws Exception {
+
+        Config phoneEdit = new Config();
+        phoneEdit.set(Config.THEME, 2);
+
+        Config watchEdit = new Config();
+        watchEdit.set(Config.SHOW_SECONDS, false);
+
+        byte[] full = ConfigCodec.encode(1, true, new Config(), 0);
+        byte[] fromPhone = ConfigCodec.encode(2, false, phoneEdit, 1 << Config.THEME);
+        byte[] fromWatch = ConfigCodec.encode(2, false, watchEdit, 1 << Config.SHOW_SECONDS);
+
+        // Each device sees its own batch first
+        Watch phone = new Watch();
+        phone.receiver.onDataChanged(ConfigReceiver.path(1), full);
+        phone.receiver.onDataChanged(ConfigReceiver.path(2), fromPhone);
+        phone.receiver.onDataChanged(ConfigReceiver.path(2), fromWatch);
+
+        Watch watch = new Watch();
+        watch.receiver.onDataChanged(ConfigReceiver.path(1), full);
+        watch.receiver.onDataChanged(ConfigReceiver.path(2), fromWatch);
+        watch.receiver.onDataChanged(ConfigReceiver.path(2), fromPhone);
+
+        assertEquals(0, phone.receiver.config().diff(watch.receiver.config()));
+        assertEquals(2, phone.receiver.sequence());
+
+        // Either batch replaced the other, never both applied
+        Config agreed = phone.receiver.config();
+        assertTrue(agreed.get(Config.THEME) == 2 ^ !agreed.getBoolean(Config.SHOW_SECONDS));
+
+        // Both waiting for a missing batch: the same one is kept
+        Watch late = new Watch();
+        late.receiver.onDataChanged(ConfigReceiver.path(2), fromWatch);
+        late.receiver.onDataChanged(ConfigReceiver.path(2), fromPhone);
+        assertEquals(1, late.receiver.pending());
+        late.receiver.onDataChanged(ConfigReceiver.path(1), full);
+
+        assertEquals(0, late.receiver.config().diff(agreed));
+    }
+}
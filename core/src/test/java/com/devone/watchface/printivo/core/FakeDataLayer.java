@@ -0,0 +1,98 @@
+package com.devone.watchface.printivo.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-process stand-in for the Wearable Data API: one item store shared by every channel. Puts
+ * are only delivered to the subscribers when {@link #sync()} runs, in the order they were made
+ * or reversed, like the real thing delivers them asynchronously.
+ */
+class FakeDataLayer {
+
+    final Map<String, byte[]> items = new TreeMap<>();
+
+    boolean reverse;
+
+    private final List<String> queue = new ArrayList<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    private static class Subscription {
+
+        final String prefix;
+        final DataChannel.Listener listener;
+
+        Subscription(String prefix, DataChannel.Listener listener) {
+
+            this.prefix = prefix;
+            this.listener = listener;
+        }
+    }
+
+    DataChannel channel() {
+
+        return new DataChannel() {
+
+            @Override
+            public void put(String path, byte[] data) {
+
+                items.put(path, data);
+                queue.add(path);
+            }
+
+            @Override
+            public void delete(String path) {
+
+                items.remove(path);
+            }
+
+            @Override
+            public void subscribe(String prefix, Listener listener) {
+
+                for (Map.Entry<String, byte[]> item : items.entrySet()) {
+                    if (item.getKey().startsWith(prefix)) {
+                        listener.onDataChanged(item.getKey(), item.getValue());
+                    }
+                }
+
+                listener.onLoaded();
+
+                subscriptions.add(new Subscription(prefix, listener));
+            }
+
+            @Override
+            public void unsubscribe(Listener listener) {
+
+                for (int i = subscriptions.size() - 1; i >= 0; i--) {
+                    if (subscriptions.get(i).listener == listener) subscriptions.remove(i);
+                }
+            }
+        };
+    }
+
+    /**
+     * Delivers the items put since the last sync that still exist
+     */
+    void sync() {
+
+        List<String> paths = new ArrayList<>(queue);
+        queue.clear();
+
+        if (reverse) Collections.reverse(paths);
+
+        for (String path : paths) {
+
+            byte[] data = items.get(path);
+            if (data == null) continue;
+
+            for (Subscription subscription : new ArrayList<>(subscriptions)) {
+                if (path.startsWith(subscription.prefix)) {
+                    subscription.listener.onDataChanged(path, data);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FramePacerTest {
+
+    // A 60 Hz display
+    private static final long VSYNC = 16666667;
+
+    private static final long FAST = 2000000;
+    private static final long SLOW = 12000000;
+
+    @Test
+    public void drawsEveryOtherVsyncAtHalfTheDisplayRate() throws Exception {
+
+        FramePacer pacer = new FramePacer();
+        pacer.start(30);
+
+        int drawn = 0;
+
+        for (int i = 0; i < 60; i++) {
+
+            // Some jitter on the callbacks
+            long vsync = i * VSYNC + (i % 3) * 500000;
+
+            if (pacer.onVsync(vsync)) {
+                pacer.onFrameDrawn(FAST);
+                drawn++;
+            }
+        }
+
+        assertEquals(30, drawn);
+        assertEquals(30, pacer.onTime());
+        assertFalse(pacer.hasFallenBack());
+
+        // Not asked for, not counted
+        pacer.onFrameDrawn(FAST);
+        assertEquals(30, pacer.frames());
+    }
+
+    @Test
+    public void countsSkippedVsyncsAndOverBudgetFramesAsLate() throws Exception {
+
+        FramePacer pacer = new FramePacer();
+        pacer.start(60);
+
+        assertEquals(VSYNC / 2, pacer.budgetNanos(), 1);
+
+        assertTrue(pacer.onVsync(0));
+        pacer.onFrameDrawn(FAST);
+
+        // Over budget
+        assertTrue(pacer.onVsync(VSYNC));
+        pacer.onFrameDrawn(SLOW);
+
+        // The vsync after it went by without a frame
+        assertTrue(pacer.onVsync(3 * VSYNC));
+        pacer.onFrameDrawn(FAST);
+
+        assertTrue(pacer.onVsync(4 * VSYNC));
+        pacer.onFrameDrawn(FAST);
+
+        assertEquals(4, pacer.frames());
+        assertEquals(2, pacer.onTime());
+        assertEquals(0.5f, pacer.onTimeFraction(), 0.001f);
+
+        char[] line = new char[96];
+        int length = pacer.format(line);
+        assertEquals("anim 60fps on time 50.0% 2/4 max 12.00ms fallbacks 0",
+                new String(line, 0, length));
+    }
+
+    @Test
+    public void fallsBackWhenTooManyRecentFramesAreLate() throws Exception {
+
+        FramePacer pacer = new FramePacer();
+        pacer.start(60);
+
+        long vsync = 0;
+
+        // Late frames spread over more than a window never add up
+        for (int i = 0; i < 4 * FramePacer.WINDOW; i++, vsync += VSYNC) {
+            assertTrue(pacer.onVsync(vsync));
+            pacer.onFrameDrawn(i % 10 == 0 ? SLOW : FAST);
+        }
+
+        assertFalse(pacer.hasFallenBack());
+
+        // A burst of them does, at the latest after one more than allowed
+        int late = 0;
+
+        while (pacer.onVsync(vsync)) {
+            pacer.onFrameDrawn(SLOW);
+            late++;
+            vsync += VSYNC;
+        }
+
+        assertTrue(pacer.hasFallenBack());
+        assertTrue(late <= FramePacer.MAX_LATE + 1);
+        assertFalse(pacer.onVsync(vsync));
+        assertEquals(1, pacer.fallbacks());
+
+        // Another try once restarted, the totals are kept
+        long frames = pacer.frames();
+
+        pacer.stop();
+        assertTrue(pacer.onVsync(vsync + VSYNC));
+        pacer.onFrameDrawn(FAST);
+
+        assertFalse(pacer.hasFallenBack());
+        assertEquals(frames + 1, pacer.frames());
+    }
+}
@@ -0,0 +1,80 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameProfilerTest {
+
+    @Test
+    public void reportsPercentilesPerPhase() throws Exception {
+
+        FrameProfiler profiler = new FrameProfiler();
+
+        for (int i = 0; i < 99; i++) profiler.record(FrameProfiler.PHASE_TIME, 1000);
+        profiler.record(FrameProfiler.PHASE_TIME, 1000000);
+
+        assertEquals(100, profiler.count(FrameProfiler.PHASE_TIME));
+        assertEquals(0, profiler.count(FrameProfiler.PHASE_DATE));
+
+        // 1000ns falls in the [512, 1024) bucket
+        assertEquals(1023, profiler.percentile(FrameProfiler.PHASE_TIME, 50));
+        assertEquals(1023, profiler.percentile(FrameProfiler.PHASE_TIME, 99));
+        assertEquals(1000000, profiler.percentile(FrameProfiler.PHASE_TIME, 100));
+        assertEquals(1000000, profiler.max(FrameProfiler.PHASE_TIME));
+
+        char[] line = new char[64];
+        int length = profiler.format(FrameProfiler.PHASE_TIME, line);
+        assertEquals("time 100 50% 0.00 99% 0.00 max 1.00ms", new String(line, 0, length));
+    }
+
+    @Test
+    public void countsMissedTicks() throws Exception {
+
+        FrameProfiler profiler = new FrameProfiler();
+
+        profiler.recordTick(3, 1000);
+        profiler.recordTick(999, 1000);
+        profiler.recordTick(1000, 1000);
+        profiler.recordTick(2500, 1000);
+
+        assertEquals(4, profiler.ticks());
+        assertEquals(2, profiler.missedTicks());
+
+        profiler.reset();
+        assertEquals(0, profiler.missedTicks());
+    }
+
+    @Test
+    public void doesNotAllocate() throws Exception {
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        FrameProfiler profiler = new FrameProfiler();
+        char[] line = new char[64];
+
+        record(profiler, line, 100000);
+
+        int frames = 100000;
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        record(profiler, line, frames);
+        long after = threads.getThreadAllocatedBytes(thread);
+
+        assertTrue((after - before) / frames == 0);
+    }
+
+    private static void record(FrameProfiler profiler, char[] line, int frames) {
+
+        for (int i = 0; i < frames; i++) {
+            profiler.record(i % FrameProfiler.PHASES, i * 37L);
+            profiler.recordTick(i % 1200, 1000);
+            profiler.format(i % FrameProfiler.PHASES, line);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LayoutSpecCacheTest {
+
+    @Test
+    public void loadsTheSpecStoredForTheSameKey() throws Exception {
+
+        File file = temporaryFile();
+        LayoutSpecCache cache = new LayoutSpecCache(file);
+
+        LayoutSpecCache.Key key = new LayoutSpecCache.Key(320, 320, 1.5f, 1.65f, true, 1, "en_US");
+
+        LayoutSpec spec = new LayoutSpec();
+        spec.setDisplay(320, 320, 1.1f);
+        spec.setTextMetrics(-20, 5, -60, -50);
+        spec.setRound(true);
+
+        assertFalse(cache.load(key, new LayoutSpec()));
+        assertTrue(cache.store(key, spec));
+
+        LayoutSpec loaded = new LayoutSpec();
+        assertTrue(cache.load(key, loaded));
+
+        assertEquals(spec.timeBaseline, loaded.timeBaseline, 0);
+        assertEquals(spec.logoOffsetY, loaded.logoOffsetY, 0);
+        assertEquals(spec.decorRadius4, loaded.decorRadius4, 0);
+        assertEquals(spec.ampmTextSize, loaded.ampmTextSize, 0);
+    }
+
+    @Test
+    public void missesOnAnotherKeyOrACorruptFile() throws Exception {
+
+        File file = temporaryFile();
+        LayoutSpecCache cache = new LayoutSpecCache(file);
+
+        LayoutSpecCache.Key key = new LayoutSpecCache.Key(320, 320, 1.5f, 1.65f, true, 1, "en_US");
+        cache.store(key, new LayoutSpec());
+
+        assertFalse(cache.load(new LayoutSpecCache.Key(320, 320, 1.5f, 1.65f, false, 1, "en_US"),
+                new LayoutSpec()));
+        assertFalse(cache.load(new LayoutSpecCache.Key(320, 320, 1.5f, 1.65f, true, 2, "en_US"),
+                new LayoutSpec()));
+
+        // The date may be drawn with another font in another locale
+        assertFalse(cache.load(new LayoutSpecCache.Key(320, 320, 1.5f, 1.65f, true, 1, "ja_JP"),
+                new LayoutSpec()));
+
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.setLength(raw.length() - 1);
+        raw.close();
+
+        assertFalse(cache.load(key, new LayoutSpec()));
+    }
+
+    private static File temporaryFile() throws Exception {
+
+        File file = File.createTempFile("layout", ".bin");
+        file.deleteOnExit();
+        file.delete();
+
+        return file;
+    }
+}
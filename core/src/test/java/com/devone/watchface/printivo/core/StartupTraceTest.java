@@ -0,0 +1,34 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StartupTraceTest {
+
+    @Test
+    public void keepsTheFirstMarkOfEveryStage() throws Exception {
+
+        StartupTrace trace = new StartupTrace(1000000);
+
+        trace.mark(StartupTrace.STAGE_ENGINE, 2200000);
+        trace.mark(StartupTrace.STAGE_PLACEHOLDER, 11000000);
+        trace.mark(StartupTrace.STAGE_PLACEHOLDER, 12000000);
+        trace.mark(StartupTrace.STAGE_FONTS, 32050000);
+
+        assertEquals(10000000, trace.elapsed(StartupTrace.STAGE_PLACEHOLDER));
+        assertEquals(-1, trace.elapsed(StartupTrace.STAGE_RESOURCES));
+        assertFalse(trace.isComplete());
+
+        char[] line = new char[96];
+        int length = trace.format(line);
+        assertEquals("startup engine 1.20 placeholder 10.00 fonts 31.05 resources - frame -ms",
+                new String(line, 0, length));
+
+        trace.mark(StartupTrace.STAGE_FRAME, 56130000);
+        assertTrue(trace.isComplete());
+        assertEquals(55130000, trace.elapsed(StartupTrace.STAGE_FRAME));
+    }
+}
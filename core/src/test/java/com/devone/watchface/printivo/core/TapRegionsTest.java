@@ -0,0 +1,53 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class TapRegionsTest {
+
+    @Test
+    public void hitsTheTopmostRegionUnderATap() throws Exception {
+
+        TapRegions regions = new TapRegions();
+
+        regions.addRect(1, 0, 100, 320, 260);
+        regions.addCircle(2, 40, 300, 60);
+        regions.build(320, 320);
+
+        assertEquals(1, regions.hit(160, 150));
+        assertEquals(2, regions.hit(40, 300));
+        assertEquals(TapRegions.NONE, regions.hit(160, 20));
+
+        // Inside the circle's bounding box but outside the circle
+        assertEquals(TapRegions.NONE, regions.hit(99, 340));
+
+        // The circle was added last so it wins where it overlaps the rectangle
+        assertEquals(2, regions.hit(40, 250));
+        assertEquals(1, regions.hit(200, 250));
+    }
+
+    @Test
+    public void composesTheRegionsOfTheFace() throws Exception {
+
+        LayoutSpec spec = new LayoutSpec();
+        spec.setDisplay(320, 320, 1);
+        spec.setTextMetrics(-20, 5, -60, -50);
+        spec.setRound(true);
+
+        Palette palette = new Palette(0, 0, 0, 0, 0, 0, 0);
+        FrameComposer composer = new FrameComposer(new ClockText(Locale.US), spec, palette);
+
+        TapRegions regions = new TapRegions();
+        composer.composeTapRegions(regions);
+
+        assertEquals(4, regions.size());
+        assertEquals(FrameComposer.TAP_DATE, regions.hit(160, spec.dateOffsetY + 1));
+        assertEquals(FrameComposer.TAP_TIME, regions.hit(160, spec.timeBaseline));
+        assertEquals(FrameComposer.TAP_LOGO, regions.hit(300, spec.logoOffsetY + 1));
+        assertEquals(FrameComposer.TAP_DECOR,
+                regions.hit(spec.decorCentreX, spec.decorCentreY - 1));
+    }
+}
@@ -0,0 +1,26 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextDiffTest {
+
+    @Test
+    public void findsFirstChangedChar() throws Exception {
+
+        TextDiff diff = new TextDiff(8);
+
+        assertEquals(0, diff.firstDifference("9:59:58".toCharArray(), 7, 0));
+        diff.set("9:59:58".toCharArray(), 7, 0);
+
+        assertEquals(-1, diff.firstDifference("9:59:58".toCharArray(), 7, 0));
+        assertEquals(6, diff.firstDifference("9:59:59".toCharArray(), 7, 0));
+        assertEquals(0, diff.firstDifference("10:00:00".toCharArray(), 8, 0));
+        assertEquals(7, diff.firstDifference("9:59:58".toCharArray(), 7, 1));
+        assertEquals(4, diff.firstDifference("9:59".toCharArray(), 4, 0));
+
+        diff.clear();
+        assertEquals(0, diff.firstDifference("9:59:58".toCharArray(), 7, 0));
+    }
+}
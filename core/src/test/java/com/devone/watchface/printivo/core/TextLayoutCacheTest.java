@@ -0,0 +1,101 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TextLayoutCacheTest {
+
+    private static final Object REGULAR = new Object();
+    private static final Object BOLD = new Object();
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+
+    // Paint.ANTI_ALIAS_FLAG
+    private static final int AA = 1;
+
+    /**
+     * Builds a new layout object for every miss
+     */
+    private static class Cache extends TextLayoutCache<Object, Object> {
+
+        int builds;
+
+        Cache(int capacity) {
+
+            super(capacity);
+        }
+
+        @Override
+        protected Object build(CharSequence text, Object paint, int width) {
+
+            builds++;
+            return new Object();
+        }
+    }
+
+    @Test
+    public void reusesLayoutsWithAnEqualKey() throws Exception {
+
+        Cache cache = new Cache(4);
+
+        Object layout = cache.obtain("printivo", null, WHITE, BOLD, 20f, AA, false, 200);
+
+        // Same content in another instance
+        assertSame(layout, cache.obtain(new StringBuilder("printivo"), null, WHITE, BOLD,
+                20f, AA, false, 200));
+
+        assertNotSame(layout, cache.obtain("printivO", null, WHITE, BOLD, 20f, AA, false, 200));
+        assertNotSame(layout, cache.obtain("printivo", null, BLACK, BOLD, 20f, AA, false, 200));
+        assertNotSame(layout, cache.obtain("printivo", null, WHITE, REGULAR, 20f, AA, false, 200));
+        assertNotSame(layout, cache.obtain("printivo", null, WHITE, BOLD, 21f, AA, false, 200));
+        assertNotSame(layout, cache.obtain("printivo", null, WHITE, BOLD, 20f, AA, true, 200));
+        assertNotSame(layout, cache.obtain("printivo", null, WHITE, BOLD, 20f, AA, false, 100));
+        assertNotSame(layout, cache.obtain("printivo", null, WHITE, BOLD, 20f, 0, false, 200));
+
+        assertEquals(1, cache.hits());
+        assertEquals(8, cache.misses());
+
+        char[] line = new char[32];
+        int length = cache.format(line, 0);
+        assertEquals("layouts 1 hit 8 miss", new String(line, 0, length));
+    }
+
+    @Test
+    public void keepsTheAmbientVariantsApart() throws Exception {
+
+        Cache cache = new Cache(2);
+
+        // The logo paints of ambient and low-bit ambient only differ in anti-aliasing
+        Object ambient = cache.obtain("printivo", null, WHITE, BOLD, 20f, AA, true, 200);
+        Object lowBit = cache.obtain("printivo", null, WHITE, BOLD, 20f, 0, true, 200);
+
+        assertNotSame(ambient, lowBit);
+        assertSame(ambient, cache.obtain("printivo", null, WHITE, BOLD, 20f, AA, true, 200));
+        assertSame(lowBit, cache.obtain("printivo", null, WHITE, BOLD, 20f, 0, true, 200));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntry() throws Exception {
+
+        Cache cache = new Cache(2);
+
+        Object a = cache.obtain("a", null, 0, BOLD, 20f, AA, false, 100);
+        Object b = cache.obtain("b", null, 0, BOLD, 20f, AA, false, 100);
+
+        // Used last, so b goes
+        assertSame(a, cache.obtain("a", null, 0, BOLD, 20f, AA, false, 100));
+        cache.obtain("c", null, 0, BOLD, 20f, AA, false, 100);
+
+        assertSame(a, cache.obtain("a", null, 0, BOLD, 20f, AA, false, 100));
+        assertNotSame(b, cache.obtain("b", null, 0, BOLD, 20f, AA, false, 100));
+        assertEquals(4, cache.builds);
+
+        cache.clear();
+        assertNotSame(a, cache.obtain("a", null, 0, BOLD, 20f, AA, false, 100));
+        assertEquals(5, cache.builds);
+    }
+}
@@ -0,0 +1,53 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ThemeSwitcherTest {
+
+    @Test
+    public void swapsOnTheNextFrameAndTimesIt() throws Exception {
+
+        ThemeSwitcher themes = new ThemeSwitcher(3, 1);
+
+        assertFalse(themes.beginFrame(0));
+        themes.endFrame(1000000);
+        assertEquals(-1, themes.lastSwitchNanos());
+
+        // Requested twice before a frame, only the last one is rendered
+        themes.select(2);
+        themes.select(0);
+        assertEquals(1, themes.current());
+
+        assertTrue(themes.beginFrame(10000000));
+        assertEquals(0, themes.current());
+        themes.endFrame(13200000);
+
+        assertFalse(themes.beginFrame(20000000));
+        themes.endFrame(21000000);
+
+        assertEquals(3200000, themes.lastSwitchNanos());
+        assertEquals(1, themes.switches());
+
+        char[] line = new char[64];
+        int length = themes.format(line);
+        assertEquals("theme 1/3 switches 1 last 3.20 max 3.20ms", new String(line, 0, length));
+    }
+
+    @Test
+    public void cyclesAndFallsBackToTheFirstTheme() throws Exception {
+
+        ThemeSwitcher themes = new ThemeSwitcher(2, 5);
+
+        assertEquals(0, themes.current());
+
+        assertEquals(1, themes.selectNext());
+        assertEquals(0, themes.selectNext());
+
+        themes.select(-1);
+        assertEquals(0, themes.requested());
+    }
+}
@@ -0,0 +1,102 @@
+package com.devone.watchface.printivo.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TickSchedulerTest {
+
+    @Test
+    public void alignsTicksToBoundaries() throws Exception {
+
+        TickScheduler scheduler = new TickScheduler(TickScheduler.SECOND);
+
+        assertEquals(766, scheduler.schedule(10234));
+        assertTrue(scheduler.onTick(11000));
+
+        scheduler.setPeriod(TickScheduler.MINUTE);
+        assertEquals(49000, scheduler.schedule(11000));
+        assertTrue(scheduler.onTick(60000));
+    }
+
+    @Test
+    public void compensatesForWakeLatency() throws Exception {
+
+        TickScheduler scheduler = new TickScheduler(TickScheduler.SECOND);
+
+        // Every tick wakes up 20ms after it was asked to
+        long now = 500;
+        for (int i = 0; i < 100; i++) {
+            now += scheduler.schedule(now) + 20;
+            assertTrue(scheduler.onTick(now));
+        }
+
+        assertEquals(15, scheduler.lead());
+        assertEquals(5, now % TickScheduler.SECOND);
+        assertEquals(0, scheduler.early());
+        assertEquals(0, scheduler.missed());
+        assertEquals(100, scheduler.ticks());
+        assertEquals(20, scheduler.maxLateness());
+    }
+
+    @Test
+    public void reportsEarlyAndMissedTicks() throws Exception {
+
+        TickScheduler scheduler = new TickScheduler(TickScheduler.SECOND);
+
+        scheduler.schedule(0);
+        assertFalse(scheduler.onTick(990));
+
+        // Rescheduling before the boundary keeps it
+        assertEquals(10, scheduler.schedule(990));
+        assertTrue(scheduler.onTick(1000));
+
+        scheduler.schedule(1000);
+        assertTrue(scheduler.onTick(3500));
+
+        assertEquals(1, scheduler.early());
+        assertEquals(2, scheduler.ticks());
+        assertEquals(1, scheduler.missed());
+        assertEquals(1500, scheduler.maxLateness());
+
+        char[] line = new char[64];
+        int length = scheduler.format(line);
+        assertEquals("tick 1000ms lead 0 late 50% 1 99% 1500 max 1500 early 1",
+                new String(line, 0, length));
+    }
+
+    @Test
+    public void waitsForTheBoundaryAfterAnEarlyTick() throws Exception {
+
+        TickScheduler scheduler = new TickScheduler(TickScheduler.SECOND);
+
+        long now = 500;
+        for (int i = 0; i < 100; i++) {
+            now += scheduler.schedule(now) + 20;
+            assertTrue(scheduler.onTick(now));
+        }
+
+        // From now on ticks wake exactly when asked, before the boundary while there is a lead
+        for (int i = 0; i < 10; i++) {
+
+            long lead = scheduler.lead();
+            assertTrue(lead > 0);
+
+            now += scheduler.schedule(now);
+            assertFalse(scheduler.onTick(now));
+
+            // Not counted as latency, and the retry goes to the boundary instead of spinning
+            assertEquals(lead, scheduler.lead());
+            assertEquals(lead, scheduler.schedule(now));
+
+            now += lead;
+            assertTrue(scheduler.onTick(now));
+            assertEquals(0, now % TickScheduler.SECOND);
+        }
+
+        assertEquals(10, scheduler.early());
+        assertEquals(20, scheduler.maxLateness());
+    }
+}
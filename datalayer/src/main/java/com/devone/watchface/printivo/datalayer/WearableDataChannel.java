@@ -0,0 +1,198 @@
+package com.devone.watchface.printivo.datalayer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.devone.watchface.printivo.core.DataChannel;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataEvent;
+import com.google.android.gms.wearable.DataEventBuffer;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link DataChannel} backed by the Wearable Data API.
+ * <p/>
+ * Items are put urgently, a config change is something the user waits to see on the watch.
+ * Calls made before the client is connected are queued and run once it is. Listeners are called
+ * on the main thread.
+ */
+public class WearableDataChannel implements DataChannel, GoogleApiClient.ConnectionCallbacks {
+
+    private static final String TAG = "WearableDataChannel";
+
+    private final GoogleApiClient client;
+
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    private boolean connected;
+
+    private static class Subscription implements DataApi.DataListener {
+
+        final String prefix;
+        final Listener listener;
+
+        Subscription(String prefix, Listener listener) {
+
+            this.prefix = prefix;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onDataChanged(DataEventBuffer events) {
+
+            // The buffer is released once this returns, everything is read from it right here
+            for (DataEvent event : events) {
+                if (event.getType() == DataEvent.TYPE_CHANGED) deliver(event.getDataItem());
+            }
+        }
+
+        void deliver(DataItem item) {
+
+            String path = item.getUri().getPath();
+
+            if (path != null && path.startsWith(prefix)) {
+                listener.onDataChanged(path, item.getData());
+            }
+        }
+    }
+
+    public WearableDataChannel(Context context) {
+
+        client = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .addConnectionCallbacks(this)
+                .build();
+
+        client.connect();
+    }
+
+    @Override
+    public void put(final String path, final byte[] data) {
+
+        run(new Runnable() {
+            @Override
+            public void run() {
+
+                PutDataRequest request = PutDataRequest.create(path).setData(data).setUrgent();
+                Wearable.DataApi.putDataItem(client, request);
+            }
+        });
+    }
+
+    @Override
+    public void delete(final String path) {
+
+        run(new Runnable() {
+            @Override
+            public void run() {
+
+                Wearable.DataApi.deleteDataItems(client, uri(path), DataApi.FILTER_LITERAL);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(final String prefix, final Listener listener) {
+
+        final Subscription subscription = new Subscription(prefix, listener);
+        subscriptions.add(subscription);
+
+        run(new Runnable() {
+            @Override
+            public void run() {
+
+                Wearable.DataApi.addListener(client, subscription, uri(prefix),
+                        DataApi.FILTER_PREFIX);
+
+                Wearable.DataApi.getDataItems(client, uri(prefix), DataApi.FILTER_PREFIX)
+                        .setResultCallback(new ResultCallback<DataItemBuffer>() {
+                            @Override
+                            public void onResult(DataItemBuffer items) {
+
+                                if (items.getStatus().isSuccess()) {
+                                    for (DataItem item : items) subscription.deliver(item);
+                                } else {
+                                    Log.w(TAG, "Could not read " + prefix);
+                                }
+
+                                items.release();
+
+                                // Unsubscribed in the meantime
+                                if (subscriptions.contains(subscription)) listener.onLoaded();
+                            }
+                        });
+            }
+        });
+    }
+
+    @Override
+    public void unsubscribe(Listener listener) {
+
+        for (int i = subscriptions.size() - 1; i >= 0; i--) {
+
+            Subscription subscription = subscriptions.get(i);
+
+            if (subscription.listener != listener) continue;
+
+            subscriptions.remove(i);
+
+            if (connected) Wearable.DataApi.removeListener(client, subscription);
+        }
+    }
+
+    /**
+     * Disconnects, nothing is delivered afterwards
+     */
+    public void release() {
+
+        for (int i = subscriptions.size() - 1; i >= 0; i--) {
+            unsubscribe(subscriptions.get(i).listener);
+        }
+
+        queued.clear();
+        client.disconnect();
+        connected = false;
+    }
+
+    @Override
+    public void onConnected(Bundle connectionHint) {
+
+        connected = true;
+
+        for (Runnable runnable : queued) runnable.run();
+        queued.clear();
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+
+        // Reconnects on its own, calls made meanwhile wait for it
+        connected = false;
+    }
+
+    private void run(Runnable runnable) {
+
+        if (connected) {
+            runnable.run();
+        } else {
+            queued.add(runnable);
+        }
+    }
+
+    private static Uri uri(String path) {
+
+        return new Uri.Builder().scheme(PutDataRequest.WEAR_URI_SCHEME).path(path).build();
+    }
+}
@@ -0,0 +1,197 @@
+package com.devone.watchface.printivo;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.CompoundButton;
+import android.widget.Spinner;
+import android.widget.Switch;
+
+import com.devone.watchface.printivo.core.Config;
+import com.devone.watchface.printivo.core.ConfigReceiver;
+import com.devone.watchface.printivo.core.ConfigSender;
+import com.devone.watchface.printivo.datalayer.WearableDataChannel;
+
+/**
+ * Changes the watch face's settings from the phone.
+ * <p/>
+ * The current config is read back from the Data Layer first, so edits continue its log (see
+ * {@link ConfigSender}); the controls stay disabled until then. Edits are coalesced and sent once
+ * the user pauses, or right away when the activity goes to the background. Settings changed on
+ * the watch show up in the controls as they arrive.
+ */
+public class ConfigActivity extends AppCompatActivity implements ConfigReceiver.Listener {
+
+    /** The ring animation rates offered, 0 for none */
+    private static final int[] ANIMATION_FPS = {0, 30, 60};
+
+    private WearableDataChannel channel;
+    private ConfigReceiver receiver;
+    private ConfigSender sender;
+
+    private Spinner themeSpinner;
+    private Switch secondsSwitch;
+    private Spinner animationSpinner;
+
+    private final Handler handler = new Handler();
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+
+            sender.flush(SystemClock.uptimeMillis());
+            scheduleFlush();
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        setContentView(R.layout.activity_config);
+
+        themeSpinner = (Spinner) findViewById(R.id.theme);
+        secondsSwitch = (Switch) findViewById(R.id.seconds);
+        animationSpinner = (Spinner) findViewById(R.id.animation);
+
+        themeSpinner.setAdapter(adapter(R.array.theme_names));
+        animationSpinner.setAdapter(adapter(R.array.animation_names));
+
+        channel = new WearableDataChannel(this);
+        receiver = new ConfigReceiver(this);
+        channel.subscribe(ConfigReceiver.PATH_PREFIX, receiver);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+
+        // The process may not come back, nothing is left waiting
+        handler.removeCallbacks(flush);
+        if (sender != null) sender.flushNow();
+    }
+
+    @Override
+    protected void onDestroy() {
+
+        channel.release();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onConfigLoaded(Config config) {
+
+        sender = new ConfigSender(channel, receiver);
+
+        showConfig();
+
+        // Listening only now, the values set above are not edits
+        themeSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+
+                // Also called for the initial selection
+                if (position != sender.config().get(Config.THEME)) {
+                    sender.set(Config.THEME, position, SystemClock.uptimeMillis());
+                    scheduleFlush();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        secondsSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton button, boolean checked) {
+
+                // Also called when showing a change made on the watch
+                if (checked != sender.config().getBoolean(Config.SHOW_SECONDS)) {
+                    sender.set(Config.SHOW_SECONDS, checked, SystemClock.uptimeMillis());
+                    scheduleFlush();
+                }
+            }
+        });
+
+        animationSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+
+                int fps = ANIMATION_FPS[position];
+
+                if (fps != sender.config().get(Config.ANIMATION_FPS)) {
+                    sender.set(Config.ANIMATION_FPS, fps, SystemClock.uptimeMillis());
+                    scheduleFlush();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        themeSpinner.setEnabled(true);
+        secondsSwitch.setEnabled(true);
+        animationSpinner.setEnabled(true);
+    }
+
+    @Override
+    public void onConfigChanged(Config config, int fields) {
+
+        // Delivered while loading, shown by onConfigLoaded
+        if (sender == null) return;
+
+        // Tapped on the watch, or the batches this activity sent coming back
+        sender.rebase();
+        showConfig();
+    }
+
+    /**
+     * Sets the controls to the sender's config, which the listeners then see as no edit
+     */
+    private void showConfig() {
+
+        Config config = sender.config();
+
+        themeSpinner.setSelection(config.get(Config.THEME));
+        secondsSwitch.setChecked(config.getBoolean(Config.SHOW_SECONDS));
+        animationSpinner.setSelection(animationIndex(config.get(Config.ANIMATION_FPS)));
+    }
+
+    private ArrayAdapter<CharSequence> adapter(int names) {
+
+        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(this, names,
+                android.R.layout.simple_spinner_item);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+
+        return adapter;
+    }
+
+    /**
+     * The offered rate closest to {@code fps}
+     */
+    private static int animationIndex(int fps) {
+
+        int index = 0;
+
+        for (int i = 1; i < ANIMATION_FPS.length; i++) {
+            if (Math.abs(ANIMATION_FPS[i] - fps) < Math.abs(ANIMATION_FPS[index] - fps)) index = i;
+        }
+
+        return index;
+    }
+
+    private void scheduleFlush() {
+
+        handler.removeCallbacks(flush);
+
+        long delay = sender.delay(SystemClock.uptimeMillis());
+
+        if (delay >= 0) handler.postDelayed(flush, delay);
+    }
+}
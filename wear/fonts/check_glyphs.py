@@ -0,0 +1,45 @@
+#!/usr/bin/env python3
+"""Checks that font subsets map every character they are required to render.
+
+Usage: check_glyphs.py FONT GLYPHS [FONT GLYPHS ...]
+
+GLYPHS is a UTF-8 text file holding the required characters. Exits with status 1 and lists
+the missing characters per font if any of them is not in the font's character map.
+"""
+
+import sys
+
+from fontTools.ttLib import TTFont
+
+
+def missing(font_path, glyphs_path):
+
+    with open(glyphs_path, encoding='utf-8') as f:
+        required = set(f.read()) - {'\n', '\r'}
+
+    cmap = TTFont(font_path).getBestCmap()
+
+    return sorted(c for c in required if ord(c) not in cmap)
+
+
+def main(args):
+
+    if not args or len(args) % 2:
+        sys.exit(__doc__)
+
+    failed = False
+
+    for font_path, glyphs_path in zip(args[::2], args[1::2]):
+
+        chars = missing(font_path, glyphs_path)
+
+        if chars:
+            failed = True
+            print('%s is missing %s' % (font_path, ' '.join('%r (U+%04X)' % (c, ord(c))
+                                                            for c in chars)))
+
+    sys.exit(1 if failed else 0)
+
+
+if __name__ == '__main__':
+    main(sys.argv[1:])
@@ -15,11 +15,14 @@
  */
 package com.devone.watchface.printivo;
 
+import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.res.Resources;
+import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -28,27 +31,58 @@ import android.graphics.Typeface;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.support.annotation.ColorInt;
-import android.support.v4.content.ContextCompat;
+import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.Layout;
 import android.text.SpannableString;
-import android.text.SpannableStringBuilder;
 import android.text.Spanned;
-import android.text.StaticLayout;
 import android.text.TextPaint;
 import android.text.style.ForegroundColorSpan;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 import android.widget.Toast;
 
-import com.devone.watchface.printivo.typeface.AMPMSpan;
+import com.devone.watchface.printivo.core.Chars;
+import com.devone.watchface.printivo.core.ClockState;
+import com.devone.watchface.printivo.complication.DataContent;
+import com.devone.watchface.printivo.core.ClockText;
+import com.devone.watchface.printivo.core.ComplicationSlot;
+import com.devone.watchface.printivo.core.Complications;
+import com.devone.watchface.printivo.core.Config;
+import com.devone.watchface.printivo.core.ConfigReceiver;
+import com.devone.watchface.printivo.core.ConfigSender;
+import com.devone.watchface.printivo.core.DrawList;
+import com.devone.watchface.printivo.core.FrameComposer;
+import com.devone.watchface.printivo.core.FramePacer;
+import com.devone.watchface.printivo.core.FrameProfiler;
+import com.devone.watchface.printivo.core.LayoutSpec;
+import com.devone.watchface.printivo.core.LayoutSpecCache;
+import com.devone.watchface.printivo.core.LocaleTables;
+import com.devone.watchface.printivo.core.Palette;
+import com.devone.watchface.printivo.core.StartupTrace;
+import com.devone.watchface.printivo.core.TapRegions;
+import com.devone.watchface.printivo.core.TextDiff;
+import com.devone.watchface.printivo.core.ThemeSwitcher;
+import com.devone.watchface.printivo.core.TickScheduler;
+import com.devone.watchface.printivo.datalayer.WearableDataChannel;
+import com.devone.watchface.printivo.render.Frame;
+import com.devone.watchface.printivo.render.FramePipeline;
+import com.devone.watchface.printivo.render.GlyphAtlas;
+import com.devone.watchface.printivo.render.Layer;
+import com.devone.watchface.printivo.render.LogoCache;
+import com.devone.watchface.printivo.render.RenderProfile;
+import com.devone.watchface.printivo.render.Theme;
 import com.devone.watchface.printivo.typeface.Font;
 import com.devone.watchface.printivo.typeface.PrintivoLogoSpan;
 
+import java.io.File;
 import java.lang.ref.WeakReference;
-import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
@@ -65,9 +99,18 @@ import static android.view.Gravity.TOP;
  */
 public class WatchFaceServive extends CanvasWatchFaceService {
 
-    private static final String REGULAR = "Myriad-Pro";
-    private static final String BOLD = "Myriad-Pro-Bold";
-    private static final String SEMIBOLD = "Myriad-Pro-Semibold";
+    private static final String TAG = "WatchFaceServive";
+
+    private static final String LAYOUT_SPEC_FILE = "layout-spec";
+
+    private static final String PREFERENCES = "watch_face";
+    private static final String PREF_THEME = "theme";
+
+    /**
+     * The complication slots, side by side below the logo (see
+     * {@link FrameComposer#layoutComplications()})
+     */
+    private static final int[] COMPLICATION_IDS = {0, 1};
 
     /**
      * Update rate in milliseconds for interactive mode. We update once a second since seconds are
@@ -75,16 +118,43 @@ public class WatchFaceServive extends CanvasWatchFaceService {
      */
     private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
 
+    /**
+     * Update rate in milliseconds for interactive mode while the seconds are hidden, by battery
+     * saver or a tap on the time.
+     */
+    private static final long MINUTE_UPDATE_RATE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /** The highest rate the smooth animation can be set to from the phone */
+    private static final int MAX_ANIMATION_FPS = 60;
+
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /**
+     * Handler message id for rendering the next minute's ambient frame ahead of time.
+     */
+    private static final int MSG_PREPARE_AMBIENT = 1;
+
+    /**
+     * Handler message id for handing the resources prepared off the main thread to the engine.
+     */
+    private static final int MSG_STARTUP_FINISHED = 2;
+
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Start loading the typefaces before the engine asks for them
+        Font.preload(this);
+    }
 
     @Override
     public Engine onCreateEngine() {
 
-        return new Engine();
+        return new Engine(System.nanoTime());
     }
 
 
@@ -100,12 +170,27 @@ public class WatchFaceServive extends CanvasWatchFaceService {
 
             WatchFaceServive.Engine engine = mWeakReference.get();
 
-            if (engine != null && msg.what == MSG_UPDATE_TIME) engine.handleUpdateTimeMessage();
+            if (engine == null) return;
+
+            switch (msg.what) {
+
+                case MSG_UPDATE_TIME:
+                    engine.handleUpdateTimeMessage();
+                    break;
+
+                case MSG_PREPARE_AMBIENT:
+                    engine.prepareAmbientFrame();
+                    break;
+
+                case MSG_STARTUP_FINISHED:
+                    engine.onStartupFinished();
+                    break;
+            }
         }
     }
 
 
-    private class Engine extends CanvasWatchFaceService.Engine {
+    private class Engine extends CanvasWatchFaceService.Engine implements ConfigReceiver.Listener {
 
         /**
          * Whether the display supports fewer bits for each color in ambient mode. When true, we
@@ -113,6 +198,10 @@ public class WatchFaceServive extends CanvasWatchFaceService {
          */
         boolean mLowBitAmbient;
         boolean mAmbient;
+        boolean mLowPower;
+
+        /** Whether the seconds are shown in interactive mode, toggled by tapping the time */
+        boolean showSeconds = true;
         boolean mRegisteredTimeZoneReceiver = false;
 
         final Handler mUpdateTimeHandler = new EngineHandler(this);
@@ -120,345 +209,1518 @@ public class WatchFaceServive extends CanvasWatchFaceService {
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                calendar.setTimeZone(TimeZone.getDefault());
+                // Also received when the time is set, either way any prepared frame is stale
+                pipeline.stop();
+                updateTimeZone();
+                updateRenderThread();
                 invalidate();
             }
         };
 
-        String logo = "printivo";
+        final BroadcastReceiver mPowerReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                updatePowerMode();
+            }
+        };
+
+        final BroadcastReceiver mLocaleReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                updateLocale();
+            }
+        };
+
+        String logo = "printivo";
+
+        /**
+         * Every selectable theme, compiled up front (see {@link #initThemes()}), and the one
+         * frames are drawn with. A switch requested through {@link #themeSwitcher} is applied by
+         * the next frame rendered, see {@link #applyTheme()}.
+         */
+        Theme[] themes;
+        Theme theme;
+        ThemeSwitcher themeSwitcher;
+
+        // Read from the resources before the fonts are loaded, compiled into themes after
+        Palette[] palettes;
+        String[] themeNames;
+
+        SharedPreferences preferences;
+
+        /**
+         * The settings, synced through the Data Layer with the phone app. The log there is the
+         * one source of truth: taps on the watch are sent to it like edits made on the phone, and
+         * the preferences only keep the theme to start with until it is loaded.
+         */
+        WearableDataChannel dataChannel;
+        ConfigReceiver configReceiver;
+        ConfigSender configSender;
+
+        // Mask of the settings tapped on the watch that are not in the log yet
+        int unpublished;
+
+        /**
+         * Everything but the time: background, date, logo and decor. Re-rendered only when the
+         * mode, insets, properties, theme or the day change.
+         */
+        final Layer staticLayer = new Layer() {
+            @Override
+            protected void onRender(Canvas canvas) {
+
+                composer.composeStatic(layerList, clock, mAmbient);
+
+                canvasTarget.replay(layerList, canvas);
+            }
+        };
+
+        /**
+         * Whether the static layer and the logo are kept as recorded pictures instead of bitmaps.
+         * Toggled by a tap while {@link #PROFILE} is set, to compare the two on a device.
+         */
+        boolean recordPictures = false;
+
+        /** Where the date, time, logo and decor are, for dispatching taps */
+        final TapRegions tapRegions = new TapRegions();
+
+        /**
+         * Slots of the complications and the data providers last sent for them. Each slot is
+         * drawn from its own raster in the theme's {@link Theme#complicationCache}, so an update
+         * only re-renders that raster and the part of the frame it covers.
+         */
+        final Complications complications = new Complications(COMPLICATION_IDS);
+        final ComplicationData[] complicationData = new ComplicationData[COMPLICATION_IDS.length];
+
+        /** The local day the static layer was rendered for */
+        long layerDay = Long.MIN_VALUE;
+
+        ClockState clock;
+        ClockText clockText;
+
+        final LayoutSpec spec = new LayoutSpec();
+
+        /**
+         * The spec computed on an earlier start, only a miss (new device profile, fonts or format)
+         * has to wait for the fonts to be measured
+         */
+        LayoutSpecCache layoutSpecCache;
+
+        // Whether the font metrics and the shape have been applied to the spec
+        boolean layoutMeasured;
+        boolean layoutShaped;
+        boolean round;
+        FrameComposer composer;
+
+        // Draw commands of the current frame and of the static layer
+        final DrawList frameList = new DrawList(6);
+        final DrawList layerList = new DrawList(8);
+        final CanvasTarget canvasTarget = new CanvasTarget();
+
+        /**
+         * Frames on the main thread are drawn straight onto the canvas: the surface does not keep
+         * its content between frames, so every frame is the static layer blit plus the glyphs.
+         * Only the off-screen frames of the {@link #pipeline} and the prepared
+         * {@link #ambientFrame} keep their pixels, ticks redraw just the {@link #dirty} region
+         * of those.
+         */
+        final Rect dirty = new Rect();
+        final Rect dirtyNext = new Rect();
+
+        /**
+         * The next minute's ambient frame, rendered right after the current one is drawn so the
+         * frame at the minute boundary is a single blit. Updated in place from one minute to the
+         * next. It is only used if it was prepared for
+         * the current minute under the current time zone (see {@link #timeGeneration}).
+         */
+        final Frame ambientFrame = new Frame();
+        ClockState ambientClock;
+        final DrawList ambientList = new DrawList(6);
+        long ambientMinute = -1;
+        int ambientGeneration;
+
+        /** Bumped whenever the zone or the system time changes */
+        int timeGeneration;
+
+        int ambientPrepared;
+        int ambientFallbacks;
+
+        /**
+         * Renders the interactive frames a second ahead on a background thread so a tick only
+         * has to blit the prepared frame. While it runs the render thread owns
+         * {@link #renderClock}, the static layer, the composer and {@link #canvasTarget}, so
+         * anything that changes them stops the pipeline first (see {@link #updateRenderThread()}).
+         * Off by default, toggled by a tap on the date while {@link #PROFILE} is set to compare
+         * the two on a device.
+         */
+        private boolean threadedRendering = false;
+
+        ClockState renderClock;
+        final DrawList renderList = new DrawList(6);
+
+        final FramePipeline pipeline = new FramePipeline(new FramePipeline.Renderer() {
+            @Override
+            public void render(Frame frame, long timeMs) {
+
+                renderClock.setTime(timeMs);
+
+                checkDay(renderClock);
+
+                renderFrame(frame, renderList, renderClock, false, canvasTarget.bounds);
+
+                if (PROFILE) formatRenderStats();
+            }
+        });
+
+        // Templates for the per mode paints, only their typeface and size are used
+        TextPaint datePaint;
+        TextPaint timePaint;
+        TextPaint ampmPaint;
+        TextPaint logoPaint;
+
+        // Time glyphs for interactive (anti-aliased) and low-bit ambient (aliased) rendering
+        GlyphAtlas glyphAtlas;
+        GlyphAtlas aliasedGlyphAtlas;
+
+        /**
+         * Paints, atlas and logo raster of the current mode and theme, the theme holds one per
+         * mode so entering or leaving ambient mode only swaps this reference.
+         */
+        RenderProfile profile;
+
+        // Cached so the draw path does not allocate a new FontMetrics every frame
+        final Paint.FontMetrics dateMetrics = new Paint.FontMetrics();
+        final Paint.FontMetrics timeMetrics = new Paint.FontMetrics();
+
+        private Paint debugPaint;
+        private float[] debugLines;
+        private boolean DEBUG = false;
+
+        /**
+         * Per phase draw times and missed ticks. Always recorded, only shown on screen when
+         * {@link #PROFILE} is set.
+         */
+        final FrameProfiler profiler = new FrameProfiler();
+        private Paint profilePaint;
+        private final char[] profileLine = new char[96];
+
+        /**
+         * The overlay lines about the layers, caches and themes, which belong to whichever thread
+         * renders. Written by it (see {@link #formatRenderStats()}) and drawn on the main thread,
+         * both under the lock of the array.
+         */
+        private static final int RENDER_STATS = 4;
+        private final char[][] renderStats = new char[RENDER_STATS][96];
+        private final int[] renderStatsLength = new int[RENDER_STATS];
+        private boolean PROFILE = false;
+
+        /** Aligns the update ticks to the second (or minute) and tracks how late they fire */
+        final TickScheduler ticker = new TickScheduler(INTERACTIVE_UPDATE_RATE_MS);
+
+        /**
+         * The smooth animation, off while {@link #animationFps} is 0. While {@link #animating}
+         * frames are drawn on the vsyncs the {@link #pacer} picks on top of the ticks, and the
+         * outer decor ring sweeps with the seconds. Once too many of them miss their budget it
+         * falls back to the ticks alone until the face is next interactive.
+         */
+        int animationFps;
+        boolean animating;
+        final FramePacer pacer = new FramePacer();
+        Choreographer choreographer;
+
+        final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+
+                if (!animating) return;
+
+                // Every vsync is asked for, the pacer skips the ones no frame is due at
+                choreographer.postFrameCallback(this);
+
+                if (pacer.onVsync(frameTimeNanos)) invalidate();
+            }
+        };
+
+        /**
+         * Whether the fonts, paints, atlases and profiles are ready. They are prepared on a
+         * background thread (see {@link #startResources()}) and only touched by the main thread
+         * once it is set; until then {@link #drawPlaceholder(Canvas)} stands in for the face.
+         */
+        boolean ready;
+        boolean destroyed;
+
+        final StartupTrace startup;
+
+        Paint placeholderPaint;
+        final char[] placeholderTime = new char[8];
+
+
+        Engine(long createdNanos) {
+
+            startup = new StartupTrace(createdNanos);
+        }
+
+        @Override
+        public void onCreate(SurfaceHolder holder) {
+            super.onCreate(holder);
+
+            setWatchFaceStyle(new WatchFaceStyle.Builder(WatchFaceServive.this)
+
+                    .setBackgroundVisibility(WatchFaceStyle.BACKGROUND_VISIBILITY_INTERRUPTIVE)
+
+                    .setHotwordIndicatorGravity(TOP | CENTER_HORIZONTAL)
+
+                    .setStatusBarGravity(TOP | CENTER_HORIZONTAL)
+
+                    .setPeekOpacityMode(PEEK_OPACITY_MODE_OPAQUE)
+
+                    .setViewProtectionMode(PROTECT_STATUS_BAR | PROTECT_HOTWORD_INDICATOR)
+
+                    .setCardPeekMode(WatchFaceStyle.PEEK_MODE_NONE)
+
+                    .setShowSystemUiTime(false)
+
+                    .setAcceptsTapEvents(true)
+
+                    .build())
+            ;
+
+            setActiveComplications(COMPLICATION_IDS);
+
+            choreographer = Choreographer.getInstance();
+
+            dataChannel = new WearableDataChannel(WatchFaceServive.this);
+            configReceiver = new ConfigReceiver(this);
+            dataChannel.subscribe(ConfigReceiver.PATH_PREFIX, configReceiver);
+
+            Resources resources = WatchFaceServive.this.getResources();
+
+            spec.setDisplay(
+                    resources.getDisplayMetrics().widthPixels,
+                    resources.getDisplayMetrics().heightPixels,
+                    resources.getDisplayMetrics().scaledDensity
+                            / resources.getDisplayMetrics().density
+            );
+
+            layoutSpecCache = new LayoutSpecCache(
+                    new File(WatchFaceServive.this.getCacheDir(), LAYOUT_SPEC_FILE));
+
+            clock = new ClockState(TimeZone.getDefault());
+            ambientClock = new ClockState(TimeZone.getDefault());
+            renderClock = new ClockState(TimeZone.getDefault());
+
+            initPlaceholderResources();
+
+            startup.mark(StartupTrace.STAGE_ENGINE, System.nanoTime());
+
+            startResources();
+        }
+
+        /**
+         * Prepares everything the face draws with on a background thread. The colors and locale
+         * tables are resolved while the typefaces are still loading (in parallel, see
+         * {@link Font#preload(Context)}), the rest waits for them.
+         */
+        private void startResources() {
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+
+                    retrievePalettes();
+
+                    preferences = getSharedPreferences(PREFERENCES, MODE_PRIVATE);
+                    themeSwitcher = new ThemeSwitcher(palettes.length,
+                            preferences.getInt(PREF_THEME, 0));
+
+                    clockText = new ClockText(Locale.getDefault());
+                    composer = new FrameComposer(clockText, spec,
+                            palettes[themeSwitcher.current()]);
+                    composer.setComplications(complications);
+
+                    Font.await();
+                    startup.mark(StartupTrace.STAGE_FONTS, System.nanoTime());
+
+                    initDateResources();
+                    initTimeResources();
+                    initLogoResources();
+
+                    initGlyphAtlases();
+                    initThemes();
+                    warmThemes();
+
+                    startup.mark(StartupTrace.STAGE_RESOURCES, System.nanoTime());
+
+                    // The message publishes all of the above to the main thread
+                    mUpdateTimeHandler.sendEmptyMessage(MSG_STARTUP_FINISHED);
+                }
+            }, "Engine startup");
+
+            thread.start();
+        }
+
+        /**
+         * Switches from the placeholder to the face once {@link #startResources()} is done
+         */
+        private void onStartupFinished() {
+
+            if (destroyed) {
+                // The engine went away while starting up, nothing but the rasters to release
+                releaseResources();
+                return;
+            }
+
+            if (!layoutMeasured) {
+
+                calculateOffsets();
+                layoutMeasured = true;
+
+                if (layoutShaped) storeLayout();
+            }
+
+            ready = true;
+            selectProfile();
+
+            composer.layoutComplications();
+            composer.composeTapRegions(tapRegions);
+
+            if (!mAmbient && DEBUG) initDebugResources();
+            if (PROFILE) initProfileResources();
+
+            staticLayer.invalidate();
+
+            // Anything that changed while starting up
+            syncConfig();
+
+            if (mRegisteredTimeZoneReceiver) {
+                updatePowerMode();
+                updateLocale();
+            }
+
+            invalidate();
+            updateTimer();
+        }
+
+        /**
+         * Reads the palette of every theme listed in {@code R.array.themes}
+         */
+        private void retrievePalettes() {
+
+            Resources resources = getResources();
+            TypedArray themeArray = resources.obtainTypedArray(R.array.themes);
+
+            palettes = new Palette[themeArray.length()];
+            themeNames = resources.getStringArray(R.array.theme_names);
+
+            for (int i = 0; i < palettes.length; i++) {
+
+                TypedArray colors = resources.obtainTypedArray(themeArray.getResourceId(i, 0));
+
+                palettes[i] = new Palette(
+                        color(colors, 0),
+                        color(colors, 1),
+                        color(colors, 2),
+                        color(colors, 3),
+                        color(colors, 4),
+                        color(colors, 5),
+                        color(colors, 6),
+                        color(colors, 7),
+                        color(colors, 8),
+                        color(colors, 9)
+                );
+
+                colors.recycle();
+            }
+
+            themeArray.recycle();
+        }
+
+        @ColorInt
+        private int color(TypedArray colors, int index) {
+
+            return colors.getColor(index, Color.BLACK);
+        }
+
+        private LayoutSpecCache.Key layoutKey() {
+
+            DisplayMetrics metrics = WatchFaceServive.this.getResources().getDisplayMetrics();
+
+            // Picks the font of the date, see localeTypeface
+            Locale locale = ready ? clockText.getTables().locale : Locale.getDefault();
+
+            return new LayoutSpecCache.Key(metrics.widthPixels, metrics.heightPixels,
+                    metrics.density, metrics.scaledDensity, round, Font.VERSION,
+                    locale.toString());
+        }
+
+        private void storeLayout() {
+
+            // A failed write only means the next start measures the fonts again
+            layoutSpecCache.store(layoutKey(), spec);
+        }
+
+        private void calculateOffsets() {
+
+            // The date may be drawn with the system font instead (see localeTypeface)
+            datePaint.getFontMetrics(dateMetrics);
+            Font.metrics(Font.SEMIBOLD, timePaint.getTextSize(), timeMetrics);
+
+            spec.setTextMetrics(dateMetrics.top, dateMetrics.descent,
+                    timeMetrics.top, timeMetrics.ascent);
+        }
+
+        private void initDebugResources() {
+            debugPaint = new Paint();
+            debugPaint.setAntiAlias(true);
+            debugPaint.setColor(Color.RED);
+
+            float width = spec.width;
+
+            debugLines = new float[]{
+                    0, spec.dateOffsetY, width, spec.dateOffsetY,
+                    0, datePaint.getFontSpacing(), width, datePaint.getFontSpacing(),
+                    0, spec.timeOffsetY, width, spec.timeOffsetY,
+                    0, timePaint.getFontSpacing(), width, timePaint.getFontSpacing(),
+                    0, spec.logoOffsetY, width, spec.logoOffsetY,
+                    0, logoPaint.getFontSpacing(), width, logoPaint.getFontSpacing()
+            };
+        }
+
+        private void initPlaceholderResources() {
+            placeholderPaint = new Paint();
+            placeholderPaint.setAntiAlias(true);
+            placeholderPaint.setColor(Color.WHITE);
+            placeholderPaint.setTypeface(Typeface.DEFAULT);
+            placeholderPaint.setTextSize(spec.timeTextSize);
+        }
+
+        private void initProfileResources() {
+            profilePaint = new Paint();
+            profilePaint.setAntiAlias(true);
+            profilePaint.setColor(Color.RED);
+            profilePaint.setTextSize(spec.width / 24);
+        }
+
+        private void initDateResources() {
+
+            datePaint = new TextPaint();
+            datePaint.setAntiAlias(true);
+            datePaint.setTypeface(localeTypeface(clockText.getTables()));
+            datePaint.setTextSize(spec.dateTextSize);
+        }
+
+        /**
+         * The bundled regular font if it covers the month names and AM/PM markers of
+         * {@code tables}, otherwise the system font. The bundled one may only be a subset for the
+         * locales the build knew about (see {@link Font}).
+         */
+        private Typeface localeTypeface(LocaleTables tables) {
+
+            boolean covered = Font.covers(Font.REGULAR, tables.ampm(0))
+                    && Font.covers(Font.REGULAR, tables.ampm(1));
+
+            for (int month = 0; month < 12 && covered; month++) {
+                covered = Font.covers(Font.REGULAR, tables.month(month));
+            }
+
+            if (covered) return Font.get(Font.REGULAR);
+
+            Log.w(TAG, "Bundled font lacks glyphs for " + tables.locale
+                    + ", using the system font");
+
+            return Typeface.DEFAULT;
+        }
+
+        private void initTimeResources() {
+
+            Typeface semibold = Font.get(Font.SEMIBOLD);
+
+            timePaint = new TextPaint();
+            timePaint.setAntiAlias(true);
+            timePaint.setTypeface(semibold);
+            timePaint.setTextSize(spec.timeTextSize);
+
+            ampmPaint = new TextPaint();
+            ampmPaint.setAntiAlias(true);
+            ampmPaint.setTypeface(localeTypeface(clockText.getTables()));
+            ampmPaint.setTextSize(spec.ampmTextSize);
+        }
+
+        private void initGlyphAtlases() {
+
+            char[] am = clockText.ampm(0);
+            char[] pm = clockText.ampm(1);
+
+            glyphAtlas = new GlyphAtlas(timePaint, ampmPaint, am, pm, true);
+            aliasedGlyphAtlas = new GlyphAtlas(timePaint, ampmPaint, am, pm, false);
+        }
+
+        private void releaseResources() {
+            for (Theme t : themes) t.release();
+            glyphAtlas.release();
+            aliasedGlyphAtlas.release();
+        }
+
+        private void initThemes() {
+
+            themes = new Theme[palettes.length];
+
+            // Complication texts come from any provider in any script, only the system font is
+            // sure to cover them
+            for (int i = 0; i < themes.length; i++) {
+                themes[i] = new Theme(themeNames[i], palettes[i], complications.size(),
+                        Typeface.DEFAULT);
+            }
+
+            theme = themes[themeSwitcher.current()];
+
+            compileThemes();
+        }
+
+        /**
+         * Builds the profiles of every theme, again whenever the glyph atlases change
+         */
+        private void compileThemes() {
+
+            int width = (int) spec.width;
+
+            for (Theme t : themes) {
+                t.compile(glyphAtlas, aliasedGlyphAtlas, datePaint, logoPaint,
+                        buildSpannedLogo(t.palette, false), buildSpannedLogo(t.palette, true),
+                        width);
+            }
+        }
+
+        private void selectProfile() {
+
+            if (!ready) return;
+
+            profile = theme.profile(LogoCache.variant(mAmbient, mLowBitAmbient));
+        }
+
+        /**
+         * Rasterizes the logo of every mode and theme up front so neither the first ambient frame
+         * nor the first frame after a theme switch has to
+         */
+        private void warmThemes() {
+
+            for (Theme t : themes) t.prepare();
+        }
+
+        /**
+         * Requests another theme, shown from the next frame on and kept across restarts
+         */
+        private void selectTheme(int index) {
+
+            if (!ready) return;
+
+            themeSwitcher.select(index);
+
+            preferences.edit().putInt(PREF_THEME, themeSwitcher.requested()).apply();
+
+            invalidate();
+        }
+
+        @Override
+        public void onConfigLoaded(Config config) {
+
+            configSender = new ConfigSender(dataChannel, configReceiver);
+
+            syncConfig();
+        }
+
+        @Override
+        public void onConfigChanged(Config config, int fields) {
+
+            // Tapped before the log was loaded, sent once it is
+            applyConfig(fields & ~unpublished);
+        }
+
+        /**
+         * Brings the watch and the loaded log together once both are ready: the log wins, except
+         * for settings tapped meanwhile, which are sent to it. An empty log is started with the
+         * watch's own settings so the phone app shows them.
+         */
+        private void syncConfig() {
+
+            if (!ready || configSender == null) return;
+
+            if (configReceiver.sequence() == 0) {
+                unpublished |= 1 << Config.THEME | 1 << Config.SHOW_SECONDS;
+            } else {
+                applyConfig(Config.ALL & ~unpublished);
+            }
+
+            publishSettings(0);
+        }
+
+        /**
+         * Sends the settings in {@code fields}, changed by a tap, to the Data Layer, or keeps them
+         * for {@link #syncConfig()} until the log is loaded
+         */
+        private void publishSettings(int fields) {
+
+            unpublished |= fields;
+
+            if (configSender == null || unpublished == 0) return;
+
+            long now = SystemClock.uptimeMillis();
+
+            if ((unpublished & 1 << Config.THEME) != 0) {
+                configSender.set(Config.THEME, themeSwitcher.requested(), now);
+            }
+
+            if ((unpublished & 1 << Config.SHOW_SECONDS) != 0) {
+                configSender.set(Config.SHOW_SECONDS, showSeconds, now);
+            }
+
+            unpublished = 0;
+
+            // A tap is a single edit, nothing to wait for
+            configSender.flushNow();
+        }
+
+        /**
+         * Applies the synced settings in {@code fields} the way the matching taps do, without
+         * restarting anything
+         */
+        private void applyConfig(int fields) {
+
+            // Applied by onStartupFinished otherwise
+            if (!ready) return;
+
+            Config config = configReceiver.config();
+
+            if ((fields & 1 << Config.THEME) != 0) selectTheme(config.get(Config.THEME));
+
+            if ((fields & 1 << Config.SHOW_SECONDS) != 0) {
+
+                boolean seconds = config.getBoolean(Config.SHOW_SECONDS);
+
+                if (seconds != showSeconds) {
+                    showSeconds = seconds;
+                    updateSeconds();
+                }
+            }
+
+            if ((fields & 1 << Config.ANIMATION_FPS) != 0) {
+
+                animationFps = Math.max(0,
+                        Math.min(config.get(Config.ANIMATION_FPS), MAX_ANIMATION_FPS));
+
+                // A new rate gets another try, even if the last one fell back
+                pacer.stop();
+                if (animating && animationFps > 0) pacer.start(animationFps);
+
+                updateAnimation();
+                updateRenderThread();
+            }
+        }
+
+        /**
+         * Swaps to the theme requested since the last frame. Runs on the thread rendering the
+         * frame, which owns the composer, the profile and the static layer at that point.
+         */
+        private void applyTheme() {
+
+            if (!themeSwitcher.beginFrame(System.nanoTime())) return;
+
+            theme = themes[themeSwitcher.current()];
+
+            composer.setPalette(theme.palette);
+            profile = theme.profile(LogoCache.variant(mAmbient, mLowBitAmbient));
+
+            // The background, date, logo and rings are drawn with the palette
+            staticLayer.invalidate();
+        }
+
+        private void setThreadedRendering(boolean threaded) {
+
+            threadedRendering = threaded;
+
+            updateRenderThread();
+            invalidate();
+        }
+
+        /**
+         * Switches the static layer and the logo between bitmap caching and picture recording
+         */
+        private void setRecordPictures(boolean record) {
+
+            if (!ready || record == recordPictures) return;
+
+            // Both are drawn from the render thread while it runs
+            pipeline.stop();
+
+            recordPictures = record;
+
+            staticLayer.setRecording(record);
+            for (Theme t : themes) t.setRecording(record);
+            warmThemes();
+
+            invalidate();
+            updateRenderThread();
+        }
+
+        private void initLogoResources() {
+
+            Typeface bold = Font.get(Font.BOLD);
+
+            logoPaint = new TextPaint();
+            logoPaint.setAntiAlias(true);
+            logoPaint.setTypeface(bold);
+            logoPaint.setTextSize(spec.logoTextSize);
+        }
+
+
+        @Override
+        public void onDestroy() {
+            destroyed = true;
+            dataChannel.release();
+            animating = false;
+            choreographer.removeFrameCallback(frameCallback);
+            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            pipeline.release();
+            staticLayer.release();
+            mUpdateTimeHandler.removeMessages(MSG_PREPARE_AMBIENT);
+            ambientFrame.release();
+            // Otherwise still owned by the startup thread, released when it finishes
+            if (ready) releaseResources();
+            super.onDestroy();
+        }
+
+        @Override
+        public void onVisibilityChanged(boolean visible) {
+            super.onVisibilityChanged(visible);
+
+            pipeline.stop();
+
+            if (visible) {
+                registerReceiver();
+
+                // Update time zone in case it changed while we weren't visible.
+                updateTimeZone();
+                invalidate();
+
+            } else {
+
+                unregisterReceiver();
+            }
+
+            // Whether the timer should be running depends on whether we're visible (as well as
+            // whether we're in ambient mode), so we may need to start or stop the timer.
+            updateTimer();
+        }
+
+
+        private void registerReceiver() {
+
+            if (mRegisteredTimeZoneReceiver) return;
+
+            mRegisteredTimeZoneReceiver = true;
+            IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
+            WatchFaceServive.this.registerReceiver(mTimeZoneReceiver, filter);
+
+            WatchFaceServive.this.registerReceiver(mPowerReceiver,
+                    new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+
+            WatchFaceServive.this.registerReceiver(mLocaleReceiver,
+                    new IntentFilter(Intent.ACTION_LOCALE_CHANGED));
+
+            // Battery saver or the locale may have changed while we weren't visible
+            updatePowerMode();
+            updateLocale();
+        }
+
+        private void unregisterReceiver() {
+
+            if (!mRegisteredTimeZoneReceiver) return;
+
+            mRegisteredTimeZoneReceiver = false;
+            WatchFaceServive.this.unregisterReceiver(mTimeZoneReceiver);
+            WatchFaceServive.this.unregisterReceiver(mPowerReceiver);
+            WatchFaceServive.this.unregisterReceiver(mLocaleReceiver);
+        }
+
+        /**
+         * Rebuilds the month and AM/PM tables, and the glyph atlases holding the AM/PM markers,
+         * when the locale changed
+         */
+        private void updateLocale() {
+
+            // Applied by onStartupFinished otherwise
+            if (!ready) return;
+
+            Locale locale = Locale.getDefault();
+
+            if (locale.equals(clockText.getTables().locale)) return;
+
+            // The text, atlases and profiles belong to the render thread while it runs
+            pipeline.stop();
+
+            LocaleTables tables = LocaleTables.forLocale(locale);
+            clockText.setTables(tables);
+
+            // The new month names and markers may be outside the bundled font
+            Typeface typeface = localeTypeface(tables);
+            boolean fontChanged = typeface != datePaint.getTypeface();
+
+            datePaint.setTypeface(typeface);
+            ampmPaint.setTypeface(typeface);
+
+            if (fontChanged) {
+
+                // The date is placed by the metrics of its font
+                calculateOffsets();
+                if (layoutShaped) storeLayout();
+
+                composer.layoutComplications();
+                composer.composeTapRegions(tapRegions);
+            }
+
+            glyphAtlas.release();
+            aliasedGlyphAtlas.release();
+
+            initGlyphAtlases();
+            compileThemes();
+            selectProfile();
+
+            // Redraws the date and every frame drawn with the old markers
+            staticLayer.invalidate();
+            ambientMinute = -1;
+
+            invalidate();
+            updateRenderThread();
+        }
+
+        /**
+         * Hides the seconds and drops to per minute updates while battery saver is on
+         */
+        private void updatePowerMode() {
+
+            // Applied by onStartupFinished otherwise
+            if (!ready) return;
+
+            PowerManager power = (PowerManager) getSystemService(Context.POWER_SERVICE);
+            boolean lowPower = power.isPowerSaveMode();
+
+            if (lowPower == mLowPower) return;
+
+            mLowPower = lowPower;
+
+            updateSeconds();
+        }
+
+        /**
+         * Shows the seconds and ticks every second unless they were hidden with a tap on the time
+         * or battery saver is on
+         */
+        private void updateSeconds() {
+
+            // The composer belongs to the render thread while it runs
+            pipeline.stop();
+
+            boolean seconds = showSeconds && !mLowPower;
+
+            composer.setShowSeconds(seconds);
+            ticker.setPeriod(seconds ? INTERACTIVE_UPDATE_RATE_MS : MINUTE_UPDATE_RATE_MS);
+
+            // Only the time glyphs change, the frame is updated through its dirty region
+            invalidate();
+            updateTimer();
+        }
+
+
+        @Override
+        public void onApplyWindowInsets(WindowInsets insets) {
+            super.onApplyWindowInsets(insets);
+
+            pipeline.stop();
+
+            staticLayer.invalidate();
+
+            round = insets.isRound();
+
+            if (!layoutMeasured && layoutSpecCache.load(layoutKey(), spec)) {
+
+                // Measured on an earlier start, already includes the shape
+                layoutMeasured = true;
+
+            } else {
+
+                spec.setRound(round);
+
+                // Otherwise stored once the fonts are measured
+                if (layoutMeasured) storeLayout();
+            }
+
+            layoutShaped = true;
+
+            // Before that the startup thread is still building the rasters
+            if (ready) {
+                for (Theme t : themes) t.invalidate();
+                warmThemes();
+
+                composer.layoutComplications();
+                composer.composeTapRegions(tapRegions);
+            }
+
+            updateRenderThread();
+        }
+
+        @Override
+        public void onAmbientModeChanged(boolean inAmbientMode) {
+            super.onAmbientModeChanged(inAmbientMode);
+
+            pipeline.stop();
+
+            if (mAmbient != inAmbientMode) {
+
+                mAmbient = inAmbientMode;
+                selectProfile();
+
+                staticLayer.invalidate();
+                invalidate();
+            }
+
+            // Whether the timer should be running depends on whether we're visible (as well as
+            // whether we're in ambient mode), so we may need to start or stop the timer.
+            updateTimer();
+        }
+
+        @Override
+        public void onPropertiesChanged(Bundle properties) {
+            super.onPropertiesChanged(properties);
+
+            pipeline.stop();
+
+            mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            selectProfile();
+
+            staticLayer.invalidate();
+
+            updateRenderThread();
+        }
+
+        @Override
+        public void onTimeTick() {
+            super.onTimeTick();
+            invalidate();
+        }
+
+        /**
+         * Hands the data to its slot. The slot only re-renders if what it shows changes, and in
+         * ambient mode the data waits for the next minute tick instead of redrawing right away.
+         */
+        @Override
+        public void onComplicationDataUpdate(int complicationId, ComplicationData data) {
+            super.onComplicationDataUpdate(complicationId, data);
+
+            int index = complications.indexOf(complicationId);
+
+            if (index < 0) return;
+
+            // Kept on the main thread for the tap action
+            complicationData[index] = data;
+
+            DataContent content = new DataContent(getApplicationContext(), data);
+
+            if (complications.offer(complicationId, content, mAmbient)) invalidate();
+        }
+
+        /**
+         * Captures tap event (and tap type) and dispatches a finished tap to the action of the
+         * region it hit. Only actions that change what is drawn invalidate the face.
+         */
+        @Override
+        public void onTapCommand(int tapType, int x, int y, long eventTime) {
+
+            switch (tapType) {
+
+                case TAP_TYPE_TOUCH:
+                    // The user has started touching the screen.
+                    break;
+
+                case TAP_TYPE_TOUCH_CANCEL:
+                    // The user has started a different gesture or otherwise cancelled the tap.
+                    break;
+
+                case TAP_TYPE_TAP:
+                    // The user has completed the tap gesture.
+                    if (ready) onTap(tapRegions.hit(x, y));
+                    break;
+            }
+        }
+
+        private void onTap(int region) {
+
+            switch (region) {
+
+                case FrameComposer.TAP_TIME:
+                    showSeconds = !showSeconds;
+                    updateSeconds();
+                    publishSettings(1 << Config.SHOW_SECONDS);
+                    break;
+
+                case FrameComposer.TAP_DECOR:
+                    // Compares the layer caching strategies while profiling
+                    if (PROFILE) setRecordPictures(!recordPictures);
+                    break;
+
+                case FrameComposer.TAP_LOGO:
+                    selectTheme(themeSwitcher.selectNext());
+                    publishSettings(1 << Config.THEME);
+                    break;
+
+                case FrameComposer.TAP_DATE:
+                    // Compares rendering on the main and on the render thread while profiling
+                    if (PROFILE) {
+                        setThreadedRendering(!threadedRendering);
+                        break;
+                    }
+
+                    // Drawn over the face, nothing to redraw
+                    Toast.makeText(getApplicationContext(), R.string.message, Toast.LENGTH_SHORT)
+                            .show();
+                    break;
+
+                default:
+                    if (region >= FrameComposer.TAP_COMPLICATION) {
+                        onComplicationTap(region - FrameComposer.TAP_COMPLICATION);
+                    }
+                    break;
+            }
+        }
+
+        /**
+         * Runs the tap action of the complication's provider, if it has one
+         */
+        private void onComplicationTap(int index) {
+
+            ComplicationData data = complicationData[index];
+
+            if (data == null || data.getTapAction() == null) return;
+
+            try {
+                data.getTapAction().send();
+            } catch (PendingIntent.CanceledException e) {
+                Log.w(TAG, "Complication tap action cancelled", e);
+            }
+        }
+
+
+        @Override
+        public void onDraw(Canvas canvas, Rect bounds) {
+
+            long start = System.nanoTime();
 
-        Calendar calendar;
+            if (!ready) {
+                drawPlaceholder(canvas);
+                return;
+            }
 
-        Paint backgroundPaint;
-        Paint decorPaint;
-        TextPaint datePaint;
-        TextPaint timePaint;
-        TextPaint logoPaint;
+            if (pipeline.isRunning()) {
 
-        float ampmTextSize;
+                // Already rendered on the render thread
+                pipeline.front().buffer.draw(canvas);
 
-        float width;
-        float height;
-        float scaled;
+            } else {
 
-        float dateOffsetX;
-        float timeOffsetX;
-        float logoOffsetX;
+                clock.setTime(System.currentTimeMillis());
 
-        // The y-offsets are the offset of the baseline of the text
-        float dateOffsetY;
-        float timeOffsetY;
-        float logoOffsetY;
+                checkDay(clock);
 
-        float decorCentreX;
-        float decorCentreY;
-        float decorRadius1;
-        float decorRadius2;
-        float decorRadius3;
-        float decorRadius4;
+                // Copied, the render thread reads them while the framework reuses its rect
+                canvasTarget.bounds.set(bounds);
 
-        @ColorInt int alt;
-        @ColorInt int ambientP;
-        @ColorInt int ambientI;
-        @ColorInt int base;
-        @ColorInt int yellow;
-        @ColorInt int pink;
-        @ColorInt int blue;
+                if (!mAmbient || !drawPreparedAmbientFrame(canvas, bounds)) {
+                    drawFrame(canvas, frameList, clock, mAmbient);
+                }
+            }
 
-        private Paint debugPaint;
-        private float[] debugLines;
-        private boolean DEBUG = false;
+            if (!mAmbient && DEBUG) debugDrawLines(canvas);
 
+            profiler.record(FrameProfiler.PHASE_FRAME, System.nanoTime() - start);
 
-        @Override
-        public void onCreate(SurfaceHolder holder) {
-            super.onCreate(holder);
+            if (animating) onAnimationFrameDrawn(System.nanoTime() - start);
 
-            setWatchFaceStyle(new WatchFaceStyle.Builder(WatchFaceServive.this)
+            if (!startup.isComplete()) {
+                startup.mark(StartupTrace.STAGE_FRAME, System.nanoTime());
 
-                    .setBackgroundVisibility(WatchFaceStyle.BACKGROUND_VISIBILITY_INTERRUPTIVE)
+                int length = startup.format(profileLine);
+                Log.d(TAG, new String(profileLine, 0, length));
+            }
 
-                    .setHotwordIndicatorGravity(TOP | CENTER_HORIZONTAL)
+            if (PROFILE) drawProfile(canvas);
 
-                    .setStatusBarGravity(TOP | CENTER_HORIZONTAL)
+            if (mAmbient) {
+                mUpdateTimeHandler.removeMessages(MSG_PREPARE_AMBIENT);
+                mUpdateTimeHandler.sendEmptyMessage(MSG_PREPARE_AMBIENT);
+            }
+        }
 
-                    .setPeekOpacityMode(PEEK_OPACITY_MODE_OPAQUE)
+        /**
+         * Stands in for the face while the fonts and resources are prepared: the time in the
+         * system font on a black background, nothing that has to be loaded first.
+         */
+        private void drawPlaceholder(Canvas canvas) {
 
-                    .setViewProtectionMode(PROTECT_STATUS_BAR | PROTECT_HOTWORD_INDICATOR)
+            clock.setTime(System.currentTimeMillis());
 
-                    .setCardPeekMode(WatchFaceStyle.PEEK_MODE_NONE)
+            int length = Chars.append(placeholderTime, 0, clock.hour);
+            placeholderTime[length++] = ':';
+            placeholderTime[length++] = (char) ('0' + clock.minute / 10);
+            placeholderTime[length++] = (char) ('0' + clock.minute % 10);
 
-                    .setShowSystemUiTime(false)
+            canvas.drawColor(Color.BLACK);
+            canvas.drawText(placeholderTime, 0, length, spec.timeOffsetX, spec.height / 2,
+                    placeholderPaint);
 
-                    .setAcceptsTapEvents(true)
+            startup.mark(StartupTrace.STAGE_PLACEHOLDER, System.nanoTime());
+        }
 
-                    .build())
-            ;
+        /**
+         * The date lives in the static layer so it has to be redrawn at midnight
+         */
+        private void checkDay(ClockState clock) {
 
+            if (clock.day != layerDay) {
+                layerDay = clock.day;
+                staticLayer.invalidate();
+            }
+        }
 
-            Resources resources = WatchFaceServive.this.getResources();
+        /**
+         * Draws the frame for the time in {@code clock} straight onto {@code canvas}
+         */
+        private void drawFrame(Canvas canvas, DrawList list, ClockState clock, boolean ambient) {
 
-            width = resources.getDisplayMetrics().widthPixels;
-            height = resources.getDisplayMetrics().heightPixels;
+            composeFrame(list, clock, ambient);
 
-            scaled = resources.getDisplayMetrics().scaledDensity
-                    / resources.getDisplayMetrics().density;
+            canvasTarget.replay(list, canvas);
 
-            retrieveColors();
+            themeSwitcher.endFrame(System.nanoTime());
+        }
 
-            initBgResources();
-            initDateResources();
-            initTimeResources();
-            initLogoResources();
-            initDecorResources();
+        private void composeFrame(DrawList list, ClockState clock, boolean ambient) {
 
-            calculateOffsets();
+            applyTheme();
 
-            calendar = Calendar.getInstance();
-            ampmTextSize = scaled * width / 10;
+            // Takes over data that arrived since the last frame and re-reads time dependent texts
+            // that crossed a boundary
+            complications.update(clock.time);
 
-            if (!mAmbient && DEBUG) initDebugResources();
+            composer.composeFrame(list, clock, ambient);
         }
 
-        private void retrieveColors() {
-            ambientI = ContextCompat.getColor(WatchFaceServive.this, R.color.amI);
-            ambientP = ContextCompat.getColor(WatchFaceServive.this, R.color.amP);
-            alt = ContextCompat.getColor(WatchFaceServive.this, R.color.alt);
-            base = ContextCompat.getColor(WatchFaceServive.this, R.color.base);
-            yellow = ContextCompat.getColor(WatchFaceServive.this, R.color.yellow);
-            pink = ContextCompat.getColor(WatchFaceServive.this, R.color.pink);
-            blue = ContextCompat.getColor(WatchFaceServive.this, R.color.blue);
-        }
+        /**
+         * Brings the off-screen {@code target} up to date with the time in {@code clock},
+         * redrawing it fully or only the time glyphs and complications that changed since it was
+         * last drawn.
+         */
+        private void renderFrame(Frame target, DrawList list, ClockState clock, boolean ambient,
+                                 Rect bounds) {
 
-        private void calculateOffsets() {
-            dateOffsetX = width / 10;// 8
-            timeOffsetX = width / 12;
-            logoOffsetX = width / 10;// 8
+            composeFrame(list, clock, ambient);
 
-            dateOffsetY = height / 4;
+            Canvas canvas = target.buffer.canvas();
+            boolean resized = target.buffer.ensure(bounds.width(), bounds.height());
 
-            Paint.FontMetrics fm;
+            int marker = GlyphAtlas.AM + clock.amPm;
 
-            fm = datePaint.getFontMetrics();
-            float dateHeight = fm.descent - fm.top;
-            timeOffsetY = dateOffsetY + dateHeight + width / 40;
+            if (resized || staticLayer.isDirty() || target.layerRenders != staticLayer.renders()) {
 
-            fm = timePaint.getFontMetrics();
-            float timeHeight = - fm.top;
-            logoOffsetY = timeOffsetY + timeHeight;
-        }
+                // Mode, insets, property, color or date change: everything is redrawn
+                canvasTarget.replay(list, canvas);
 
-        private void initDebugResources() {
-            debugPaint = new Paint();
-            debugPaint.setAntiAlias(true);
-            debugPaint.setColor(Color.RED);
+                target.layerRenders = staticLayer.renders();
+                target.time.set(clockText.time, clockText.timeLength, marker);
+                target.sweep = composer.sweep();
+                markComplications(target);
 
-            debugLines = new float[]{
-                    0, dateOffsetY, width, dateOffsetY,
-                    0, datePaint.getFontSpacing(), width, datePaint.getFontSpacing(),
-                    0, timeOffsetY, width, timeOffsetY,
-                    0, timePaint.getFontSpacing(), width, timePaint.getFontSpacing(),
-                    0, logoOffsetY, width, logoOffsetY,
-                    0, logoPaint.getFontSpacing(), width, logoPaint.getFontSpacing()
-            };
-        }
+            } else {
 
-        private void initBgResources() {
-            backgroundPaint = new Paint();
-            backgroundPaint.setAntiAlias(true);
-        }
+                dirty.setEmpty();
 
-        private void initDateResources() {
+                boolean changed = findDirtyTime(target.time, marker, ambient);
+                changed |= findDirtyComplications(target);
+                changed |= findDirtyDecor(target);
 
-            Typeface regular = Font.get(WatchFaceServive.this, REGULAR);
-            float dateTextSize = scaled * width / 16;
+                if (changed) {
 
-            datePaint = new TextPaint();
-            datePaint.setAntiAlias(true);
-            datePaint.setColor(alt);
-            datePaint.setTypeface(regular);
-            datePaint.setTextSize(dateTextSize);
-        }
+                    // Only the glyphs that changed (and everything after them) and the
+                    // complications that changed are redrawn on top of the previous frame
+                    canvas.save();
+                    canvas.clipRect(dirty);
+                    canvasTarget.replay(list, canvas);
+                    canvas.restore();
 
-        private void initTimeResources() {
+                    target.time.set(clockText.time, clockText.timeLength, marker);
+                    target.sweep = composer.sweep();
+                    markComplications(target);
+                }
+            }
 
-            Typeface semibold = Font.get(WatchFaceServive.this, SEMIBOLD);
-            float timeTextSize = scaled * width / 5;
+            target.timeMs = clock.time;
 
-            timePaint = new TextPaint();
-            timePaint.setAntiAlias(true);
-            timePaint.setColor(alt);
-            timePaint.setTypeface(semibold);
-            timePaint.setTextSize(timeTextSize);
+            // Times the first frame of a new theme, including the layer it had to redraw
+            themeSwitcher.endFrame(System.nanoTime());
         }
 
-        private void initLogoResources() {
+        /**
+         * Draws the ambient frame prepared for this minute if there is one and it is still valid,
+         * otherwise the caller falls back to drawing synchronously.
+         */
+        private boolean drawPreparedAmbientFrame(Canvas canvas, Rect bounds) {
+
+            // A day change since the frame was prepared has invalidated the static layer
+            boolean valid = ambientMinute == minuteOf(System.currentTimeMillis())
+                    && ambientGeneration == timeGeneration
+                    && !complications.hasPending()
+                    && themeSwitcher.requested() == themeSwitcher.current()
+                    && !staticLayer.isDirty()
+                    && ambientFrame.layerRenders == staticLayer.renders()
+                    && ambientFrame.buffer.matches(bounds.width(), bounds.height());
+
+            ambientMinute = -1;
+
+            if (!valid) {
+                ambientFallbacks++;
+                return false;
+            }
 
-            Typeface bold = Font.get(WatchFaceServive.this, BOLD);
-            float timeTextSize = scaled * (width * 3 / 20);
+            ambientFrame.buffer.draw(canvas);
 
-            logoPaint = new TextPaint();
-            logoPaint.setAntiAlias(true);
-            logoPaint.setColor(base);
-            logoPaint.setTypeface(bold);
-            logoPaint.setTextSize(timeTextSize);
+            ambientPrepared++;
+            return true;
         }
 
-        private void initDecorResources() {
-            decorPaint = new Paint();
-            decorPaint.setAntiAlias(true);
-            // Decor sizes are initialized in onApplyWindowInsets
-        }
+        /**
+         * Renders the frame for the start of the next minute into {@link #ambientFrame}. Runs on
+         * the handler right after an ambient frame is drawn, in the idle time before the next
+         * {@link #onTimeTick()}.
+         */
+        private void prepareAmbientFrame() {
 
+            // A pending layer rebuild (mode, insets or date change) is left to the next frame
+            if (!mAmbient || staticLayer.isDirty() || canvasTarget.bounds.isEmpty()) return;
 
-        @Override
-        public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            super.onDestroy();
-        }
+            Rect bounds = canvasTarget.bounds;
+            long next = (minuteOf(System.currentTimeMillis()) + 1) * TimeUnit.MINUTES.toMillis(1);
 
-        @Override
-        public void onVisibilityChanged(boolean visible) {
-            super.onVisibilityChanged(visible);
+            ambientClock.setTime(next);
 
-            if (visible) {
-                registerReceiver();
+            // Crossing midnight needs a new static layer, leave it to the synchronous path
+            if (ambientClock.day != layerDay) return;
 
-                // Update time zone in case it changed while we weren't visible.
-                calendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+            renderFrame(ambientFrame, ambientList, ambientClock, true, bounds);
 
-            } else {
+            ambientMinute = minuteOf(next);
+            ambientGeneration = timeGeneration;
+        }
 
-                unregisterReceiver();
-            }
+        private long minuteOf(long timeMs) {
 
-            // Whether the timer should be running depends on whether we're visible (as well as
-            // whether we're in ambient mode), so we may need to start or stop the timer.
-            updateTimer();
+            return timeMs / TimeUnit.MINUTES.toMillis(1);
         }
 
+        private void updateTimeZone() {
 
-        private void registerReceiver() {
+            TimeZone zone = TimeZone.getDefault();
 
-            if (mRegisteredTimeZoneReceiver) return;
+            clock.setTimeZone(zone);
+            ambientClock.setTimeZone(zone);
+            renderClock.setTimeZone(zone);
 
-            mRegisteredTimeZoneReceiver = true;
-            IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
-            WatchFaceServive.this.registerReceiver(mTimeZoneReceiver, filter);
+            timeGeneration++;
         }
 
-        private void unregisterReceiver() {
+        /**
+         * Adds the time glyphs in {@link #clockText} that differ from the {@code drawn} ones to
+         * the {@link #dirty} region.
+         *
+         * @return false if the time did not change at all
+         */
+        private boolean findDirtyTime(TextDiff drawn, int marker, boolean ambient) {
 
-            if (!mRegisteredTimeZoneReceiver) return;
+            int first = drawn.firstDifference(clockText.time, clockText.timeLength, marker);
 
-            mRegisteredTimeZoneReceiver = false;
-            WatchFaceServive.this.unregisterReceiver(mTimeZoneReceiver);
-        }
+            if (first < 0) return false;
 
+            GlyphAtlas atlas = theme.profile(LogoCache.variant(ambient, mLowBitAmbient)).atlas;
 
-        @Override
-        public void onApplyWindowInsets(WindowInsets insets) {
-            super.onApplyWindowInsets(insets);
+            // The glyphs before the first change are identical and keep their positions, the ones
+            // after it may have moved so the old and new glyphs from there on are both covered
+            atlas.bounds(drawn.text, drawn.length, drawn.tag, first,
+                    spec.timeOffsetX, spec.timeBaseline, dirtyNext);
+            dirty.union(dirtyNext);
+            atlas.bounds(clockText.time, clockText.timeLength, marker, first,
+                    spec.timeOffsetX, spec.timeBaseline, dirtyNext);
+            dirty.union(dirtyNext);
 
-            boolean isRound = insets.isRound();
+            return true;
+        }
 
-            decorCentreX = isRound ? width / 8 : 0;
-            decorCentreY = isRound ? height - (height / 16) : height;
+        /**
+         * Adds the complications whose version differs from the one shown by {@code target} to
+         * the {@link #dirty} region.
+         *
+         * @return false if none of them changed
+         */
+        private boolean findDirtyComplications(Frame target) {
 
+            boolean changed = false;
 
-            decorRadius1 = width * 3 / 16;
-            float decrement = width / (isRound ? 40 : 32);
+            for (int i = 0; i < complications.size(); i++) {
 
-            decorRadius2 = decorRadius1 - decrement;
-            decorRadius3 = decorRadius2 - decrement;
-            decorRadius4 = decorRadius3 - decrement;
-        }
+                ComplicationSlot slot = complications.get(i);
 
-        @Override
-        public void onAmbientModeChanged(boolean inAmbientMode) {
-            super.onAmbientModeChanged(inAmbientMode);
+                if (target.complications[i] == slot.version()) continue;
 
-            if (mAmbient != inAmbientMode) {
+                dirty.union(
+                        (int) (slot.centreX - slot.radius),
+                        (int) (slot.centreY - slot.radius),
+                        (int) Math.ceil(slot.centreX + slot.radius),
+                        (int) Math.ceil(slot.centreY + slot.radius));
 
-                mAmbient = inAmbientMode;
-                if (mLowBitAmbient) {
-                    backgroundPaint.setAntiAlias(!inAmbientMode);
-                    decorPaint.setAntiAlias(!inAmbientMode);
-                    datePaint.setAntiAlias(!inAmbientMode);
-                    timePaint.setAntiAlias(!inAmbientMode);
-                    logoPaint.setAntiAlias(!inAmbientMode);
-                }
-                invalidate();
+                changed = true;
             }
 
-            // Whether the timer should be running depends on whether we're visible (as well as
-            // whether we're in ambient mode), so we may need to start or stop the timer.
-            updateTimer();
+            return changed;
         }
 
-        @Override
-        public void onPropertiesChanged(Bundle properties) {
-            super.onPropertiesChanged(properties);
+        /**
+         * Adds the outer decor ring to the {@link #dirty} region if the sweep over it moved (or
+         * appeared or went away) since {@code target} was drawn
+         *
+         * @return false if it did not
+         */
+        private boolean findDirtyDecor(Frame target) {
 
-            mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
-        }
+            if (target.sweep == composer.sweep()) return false;
 
-        @Override
-        public void onTimeTick() {
-            super.onTimeTick();
-            invalidate();
+            float radius = spec.decorRadius1;
+
+            dirty.union(
+                    (int) (spec.decorCentreX - radius),
+                    (int) (spec.decorCentreY - radius),
+                    (int) Math.ceil(spec.decorCentreX + radius),
+                    (int) Math.ceil(spec.decorCentreY + radius));
+
+            return true;
         }
 
-        /**
-         * Captures tap event (and tap type) and toggles the background color if the user finishes
-         * a tap.
-         */
-        @Override
-        public void onTapCommand(int tapType, int x, int y, long eventTime) {
+        private void markComplications(Frame target) {
 
-            switch (tapType) {
+            for (int i = 0; i < complications.size(); i++) {
+                target.complications[i] = complications.get(i).version();
+            }
+        }
 
-                case TAP_TYPE_TOUCH:
-                    // The user has started touching the screen.
-                    break;
+        private void drawProfile(Canvas canvas) {
 
-                case TAP_TYPE_TOUCH_CANCEL:
-                    // The user has started a different gesture or otherwise cancelled the tap.
-                    break;
+            float lineHeight = profilePaint.getTextSize() * 1.2f;
+            float x = spec.width / 6;
+            float y = spec.height / 6;
 
-                case TAP_TYPE_TAP:
-                    // The user has completed the tap gesture.
-                    // TODO: Add code to handle the tap gesture.
-                    Toast.makeText(getApplicationContext(), R.string.message, Toast.LENGTH_SHORT)
-                            .show();
-                    break;
+            for (int phase = 0; phase < FrameProfiler.PHASES; phase++) {
+
+                int length = profiler.format(phase, profileLine);
+                canvas.drawText(profileLine, 0, length, x, y, profilePaint);
+                y += lineHeight;
             }
-            invalidate();
-        }
 
+            int length = startup.format(profileLine);
+            canvas.drawText(profileLine, 0, length, x, y, profilePaint);
+            y += lineHeight;
 
-        @Override
-        public void onDraw(Canvas canvas, Rect bounds) {
+            length = profiler.formatTicks(profileLine);
+            canvas.drawText(profileLine, 0, length, x, y, profilePaint);
+            y += lineHeight;
 
-            calendar.setTimeInMillis(System.currentTimeMillis());
+            length = ticker.format(profileLine);
+            canvas.drawText(profileLine, 0, length, x, y, profilePaint);
+            y += lineHeight;
 
-            // Draw the background.
-            canvas.drawColor(mAmbient ? Color.BLACK : Color.WHITE);
+            // As of the render thread's last frame while it runs
+            if (!pipeline.isRunning()) formatRenderStats();
 
-            if (!mAmbient && DEBUG) debugDrawLines(canvas);
+            synchronized (renderStats) {
+                for (int i = 0; i < RENDER_STATS; i++) {
+                    canvas.drawText(renderStats[i], 0, renderStatsLength[i], x, y, profilePaint);
+                    y += lineHeight;
+                }
+            }
+
+            if (animationFps > 0) {
 
-            // For all text it is assumed that the specified y offset is at their ascents
-            // All drawing translates the canvas/ origin with this in mind
-            drawDate(canvas);
-            drawTime(canvas);
-            drawLogo(canvas);
+                length = pacer.format(profileLine);
+                canvas.drawText(profileLine, 0, length, x, y, profilePaint);
+                y += lineHeight;
+            }
+
+            if (!pipeline.isRunning()) {
+
+                length = Chars.append(profileLine, 0,
+                        threadedRendering ? "render thread idle" : "main thread rendering");
+                canvas.drawText(profileLine, 0, length, x, y, profilePaint);
+                return;
+            }
 
-            drawDecor(canvas);
+            length = Chars.append(profileLine, 0, "presented ");
+            length = Chars.append(profileLine, length, pipeline.presented());
+            length = Chars.append(profileLine, length, " late ");
+            length = Chars.append(profileLine, length, pipeline.late());
+            canvas.drawText(profileLine, 0, length, x, y, profilePaint);
+        }
+
+        /**
+         * Formats the overlay lines about the state the renderer owns. Called on the thread that
+         * owns it: the render thread after each frame while the pipeline runs, the main thread
+         * otherwise.
+         */
+        private void formatRenderStats() {
+
+            synchronized (renderStats) {
+
+                char[] line = renderStats[0];
+                int length = Chars.append(line, 0, recordPictures ? "pictures" : "bitmaps");
+                length = Chars.append(line, length, " layer ");
+                length = Chars.append(line, length, staticLayer.byteCount() / 1024);
+                length = Chars.append(line, length, "kB logo ");
+                length = Chars.append(line, length, theme.logoCache.byteCount() / 1024);
+                length = Chars.append(line, length, "kB ");
+                renderStatsLength[0] = theme.logoCache.layouts().format(line, length);
+
+                line = renderStats[1];
+                length = complications.format(line);
+                length = Chars.append(line, length, " renders ");
+                renderStatsLength[1] = Chars.append(line, length,
+                        theme.complicationCache.renders());
+
+                renderStatsLength[2] = themeSwitcher.format(renderStats[2]);
+
+                // Rasters held per theme
+                line = renderStats[3];
+                length = Chars.append(line, 0, "themes");
+                for (Theme t : themes) {
+                    line[length++] = ' ';
+                    length = Chars.append(line, length, t.name);
+                    line[length++] = ' ';
+                    length = Chars.append(line, length, t.byteCount() / 1024);
+                    length = Chars.append(line, length, "kB");
+                }
+                renderStatsLength[3] = length;
+            }
         }
 
         private void debugDrawLines(Canvas canvas) {
 
+            float width = spec.width;
+            float dateOffsetY = spec.dateOffsetY;
+            float timeOffsetY = spec.timeOffsetY;
+            float logoOffsetY = spec.logoOffsetY;
+
             float val = -datePaint.getFontMetrics().top;
 
             canvas.drawLine(0, dateOffsetY, width, dateOffsetY, debugPaint);
@@ -478,128 +1740,132 @@ public class WatchFaceServive extends CanvasWatchFaceService {
             if (DEBUG);
         }
 
-        private void drawDate(Canvas canvas) {
-
-            if (mAmbient) return;
+        private CharSequence buildSpannedLogo(Palette p, boolean ambient) {
 
-            Locale def = Locale.getDefault();
+            Object span = ambient ? new ForegroundColorSpan(p.ambientI)
+                    : new PrintivoLogoSpan(p.base, p.yellow, p.pink, p.blue);
 
-            String date = String.format(def, "%02d %s",
-                    calendar.get(Calendar.DATE),
-                    calendar.getDisplayName(Calendar.MONTH, Calendar.SHORT, def)
-            );
+            SpannableString text = new SpannableString(logo);
+            text.setSpan(span, 5, 6, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
 
-            // The y offset represents the top so we offset the offset back to the baseline
-            Paint.FontMetrics fm = datePaint.getFontMetrics();
-            canvas.drawText(date, dateOffsetX, dateOffsetY + -fm.top, datePaint);
+            return text;
         }
 
-        private void drawTime(Canvas canvas) {
+        /**
+         * Replays draw lists onto a canvas, resolving the layers, bitmaps and paints they refer to.
+         */
+        private class CanvasTarget implements DrawList.Target {
 
-            timePaint.setColor(mAmbient ? Color.WHITE : alt);
+            Canvas canvas;
 
-            CharSequence text = buildSpannedTime();
+            /** A copy of the surface bounds of the last frame drawn on the main thread */
+            final Rect bounds = new Rect();
 
-            canvas.save();
-            canvas.translate(timeOffsetX, timeOffsetY);
+            // Only interactive frames sweep, always anti-aliased
+            final Paint sweepPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
-            StaticLayout layout = getStaticLayout(timePaint, canvas.getWidth(), text);
+            CanvasTarget() {
 
-            layout.draw(canvas);
-            canvas.restore();
+                sweepPaint.setStyle(Paint.Style.STROKE);
+            }
 
-        }
+            void replay(DrawList list, Canvas canvas) {
+
+                Canvas previous = this.canvas;
+
+                this.canvas = canvas;
+                list.replay(this);
+                this.canvas = previous;
+            }
+
+            @Override
+            public void color(int color) {
 
-        private CharSequence buildSpannedTime() {
+                canvas.drawColor(color);
+            }
 
-            Locale def = Locale.getDefault();
+            @Override
+            public void layer(int layer) {
 
-            // Draw
-            // H:MM in ambient mode
-            // H:MM:SS in interactive mode.
-            String time = mAmbient ?
-                    String.format(def, "%d:%02d",
-                            calendar.get(Calendar.HOUR),
-                            calendar.get(Calendar.MINUTE)
-                    ) :
-                    String.format(def, "%d:%02d:%02d",
-                            calendar.get(Calendar.HOUR),
-                            calendar.get(Calendar.MINUTE),
-                            calendar.get(Calendar.SECOND)
-                    );
-            // Get AM/PM
-            String ampm = calendar.getDisplayName(Calendar.AM_PM, Calendar.LONG, def);
+                // Includes rendering the layer (and its own phases) when it is out of date
+                long start = System.nanoTime();
 
+                staticLayer.draw(canvas, bounds.width(), bounds.height());
 
-            Typeface typeface = Font.get(WatchFaceServive.this, REGULAR);
+                profiler.record(FrameProfiler.PHASE_LAYER, System.nanoTime() - start);
+            }
 
-            SpannableStringBuilder text = new SpannableStringBuilder(time);
-            text.append(ampm, new AMPMSpan(typeface, ampmTextSize), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            @Override
+            public void text(int paint, char[] text, int start, int count, float x, float y,
+                             int color) {
 
-            return text;
-        }
+                long begin = System.nanoTime();
 
-        private void drawLogo(Canvas canvas) {
+                // Only the date is drawn as plain text
+                canvas.drawText(text, start, count, x, y, profile.date(color));
 
-            logoPaint.setColor(mAmbient ? ambientP : base);
+                profiler.record(FrameProfiler.PHASE_DATE, System.nanoTime() - begin);
+            }
 
-            CharSequence text = buildSpannedLogo();
+            @Override
+            public void time(char[] text, int count, int amPm, float x, float baseline,
+                             int color) {
 
-            canvas.save();
+                long start = System.nanoTime();
 
-            // Offset the y offset of the logo the top of the
-            Paint.FontMetrics fm = logoPaint.getFontMetrics();
-            canvas.translate(logoOffsetX, logoOffsetY); // + (fm.top - fm.ascent));
+                GlyphAtlas atlas = profile.atlas;
+                Paint paint = profile.glyph(color);
 
-            StaticLayout layout = getStaticLayout(logoPaint, canvas.getWidth(), text);
+                x = atlas.drawTime(canvas, text, 0, count, x, baseline, paint);
+                atlas.drawMarker(canvas, GlyphAtlas.AM + amPm, x, baseline, paint);
 
-            layout.draw(canvas);
-            canvas.restore();
+                profiler.record(FrameProfiler.PHASE_TIME, System.nanoTime() - start);
+            }
 
-            // Paint.FontMetrics fm = logoPaint.getFontMetrics();
-            // canvas.drawText(logo, logoOffsetX, logoOffsetY + -fm.ascent, logoPaint);
-        }
+            @Override
+            public void bitmap(int bitmap, float x, float y) {
 
-        private CharSequence buildSpannedLogo() {
+                if (bitmap >= FrameComposer.BITMAP_COMPLICATION) {
 
-            Object span = mAmbient ? new ForegroundColorSpan(ambientI)
-                    : new PrintivoLogoSpan(base, yellow, pink, blue);
+                    int index = bitmap - FrameComposer.BITMAP_COMPLICATION;
 
-            SpannableString text = new SpannableString(logo);
-            text.setSpan(span, 5, 6, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    // Rendered again only when the slot changed since its last render
+                    theme.complicationCache.draw(canvas, index, complications.get(index),
+                            profile.variant, x, y);
+                    return;
+                }
 
-            return text;
-        }
+                long start = System.nanoTime();
 
-        private void drawDecor(Canvas canvas) {
+                // The logo is drawn as a bitmap (or a picture, see setRecordPictures)
+                profile.drawLogo(canvas, x, y);
 
-            if (mAmbient) return;
+                profiler.record(FrameProfiler.PHASE_LOGO, System.nanoTime() - start);
+            }
 
-            decorPaint.setColor(blue);
-            canvas.drawCircle(decorCentreX, decorCentreY, decorRadius1, decorPaint);
-            decorPaint.setColor(pink);
-            canvas.drawCircle(decorCentreX, decorCentreY, decorRadius2, decorPaint);
-            decorPaint.setColor(yellow);
-            canvas.drawCircle(decorCentreX, decorCentreY, decorRadius3, decorPaint);
-            decorPaint.setColor(base);
-            canvas.drawCircle(decorCentreX, decorCentreY, decorRadius4, decorPaint);
-        }
+            @Override
+            public void circle(float cx, float cy, float radius, int color) {
 
-        private StaticLayout getStaticLayout(TextPaint paint, int canvasWidth, CharSequence text) {
+                long start = System.nanoTime();
 
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M) {
+                canvas.drawCircle(cx, cy, radius, profile.decor(color));
 
-                return StaticLayout.Builder.obtain(text, 0, text.length(), paint, canvasWidth)
-                        .setAlignment(Layout.Alignment.ALIGN_NORMAL)
-                        .setLineSpacing(0f, 1f)
-                        .setIncludePad(false)
-                        .build()
-                ;
+                profiler.record(FrameProfiler.PHASE_DECOR, System.nanoTime() - start);
+            }
 
-            } else {
+            @Override
+            public void arc(float cx, float cy, float radius, float width, float sweep,
+                            int color) {
+
+                long start = System.nanoTime();
 
-                return new StaticLayout(text, paint,
-                        canvasWidth, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+                sweepPaint.setColor(color);
+                sweepPaint.setStrokeWidth(width);
+
+                canvas.drawArc(cx - radius, cy - radius, cx + radius, cy + radius, -90, sweep,
+                        false, sweepPaint);
+
+                profiler.record(FrameProfiler.PHASE_DECOR, System.nanoTime() - start);
             }
         }
 
@@ -609,15 +1875,25 @@ public class WatchFaceServive extends CanvasWatchFaceService {
          */
         private void handleUpdateTimeMessage() {
 
-            invalidate();
+            long timeMs = System.currentTimeMillis();
 
-            if (shouldTimerBeRunning()) {
+            if (!ticker.onTick(timeMs)) {
+                // Woke up ahead of the boundary, wait for the rest of it instead of redrawing
+                long delayMs = ticker.schedule(timeMs);
+                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+                return;
+            }
+
+            profiler.recordTick(ticker.lateness(), ticker.period());
+
+            pipeline.present(timeMs);
 
-                long timeMs = System.currentTimeMillis();
+            invalidate();
 
-                // Get the number of milliseconds until the next second as use as the delay
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
+            if (shouldTimerBeRunning()) {
 
+                // Aligned to the next second (or minute) boundary, minus the expected wake latency
+                long delayMs = ticker.schedule(timeMs);
                 mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
             }
         }
@@ -628,9 +1904,78 @@ public class WatchFaceServive extends CanvasWatchFaceService {
          */
         private void updateTimer() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            ticker.cancel();
             if (shouldTimerBeRunning()) {
                 mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
             }
+            updateAnimation();
+            updateRenderThread();
+        }
+
+        /**
+         * Runs the smooth animation while the face is interactive and shows the seconds, unless
+         * it fell back since the face became interactive. The ticks keep running underneath it.
+         */
+        private void updateAnimation() {
+
+            // Leaving interactive mode gives an animation that fell back another try next time
+            if (!shouldTimerBeRunning()) pacer.stop();
+
+            boolean animate = ready && animationFps > 0 && shouldTimerBeRunning()
+                    && ticker.period() == INTERACTIVE_UPDATE_RATE_MS && !pacer.hasFallenBack();
+
+            if (animate == animating) return;
+
+            // The composer belongs to the render thread while it runs
+            pipeline.stop();
+
+            animating = animate;
+            composer.setSweep(animate);
+
+            if (animate) {
+                pacer.start(animationFps);
+                choreographer.postFrameCallback(frameCallback);
+            } else {
+                choreographer.removeFrameCallback(frameCallback);
+            }
+
+            // Adds or removes the sweep
+            invalidate();
+        }
+
+        /**
+         * Checks an animation frame against its budget, falls back to the ticks when too many
+         * recent ones missed it
+         */
+        private void onAnimationFrameDrawn(long drawNanos) {
+
+            pacer.onFrameDrawn(drawNanos);
+
+            if (!pacer.hasFallenBack()) return;
+
+            Log.w(TAG, "Animation frames over budget, back to one per second");
+
+            updateAnimation();
+            updateRenderThread();
+        }
+
+        /**
+         * Runs the {@link #pipeline} while the timer runs (and a frame has been drawn so the
+         * bounds are known) if threaded rendering is enabled, stops it otherwise.
+         */
+        private void updateRenderThread() {
+
+            // The pipeline prepares one frame per second, at a lower rate every frame would be late
+            // and at the animation's every frame is drawn right away
+            boolean running = threadedRendering && shouldTimerBeRunning() && !animating
+                    && ticker.period() == INTERACTIVE_UPDATE_RATE_MS
+                    && !canvasTarget.bounds.isEmpty();
+
+            if (running) {
+                pipeline.start(System.currentTimeMillis());
+            } else {
+                pipeline.stop();
+            }
         }
 
         /**
@@ -0,0 +1,88 @@
+package com.devone.watchface.printivo.complication;
+
+import android.content.Context;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+
+import com.devone.watchface.printivo.core.Chars;
+import com.devone.watchface.printivo.core.ComplicationSlot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads {@link ComplicationData} as the content of a {@link ComplicationSlot}.
+ * <p/>
+ * Short text and ranged value data are shown, every other type leaves the slot empty. A
+ * {@link ComplicationText} does not say when its text changes, so data with a text is read again
+ * on every minute boundary, which is as often as the time dependent texts of the support library
+ * change (and when data becomes active or inactive). The slot only re-renders if the text read
+ * then differs.
+ */
+public class DataContent implements ComplicationSlot.Content {
+
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Context context;
+    private final ComplicationData data;
+
+    public DataContent(Context context, ComplicationData data) {
+
+        this.context = context;
+        this.data = data;
+    }
+
+    @Override
+    public int type() {
+
+        switch (data.getType()) {
+
+            case ComplicationData.TYPE_SHORT_TEXT:
+                return ComplicationSlot.TYPE_TEXT;
+
+            case ComplicationData.TYPE_RANGED_VALUE:
+                return ComplicationSlot.TYPE_RANGED;
+
+            default:
+                return ComplicationSlot.TYPE_EMPTY;
+        }
+    }
+
+    @Override
+    public int text(long timeMs, char[] out) {
+
+        return read(data.getShortText(), timeMs, out);
+    }
+
+    @Override
+    public int title(long timeMs, char[] out) {
+
+        return read(data.getShortTitle(), timeMs, out);
+    }
+
+    @Override
+    public float value() {
+
+        float range = data.getMaxValue() - data.getMinValue();
+
+        if (range <= 0) return 0;
+
+        return Math.max(0, Math.min(1, (data.getValue() - data.getMinValue()) / range));
+    }
+
+    @Override
+    public long nextChange(long timeMs) {
+
+        if (data.getShortText() == null && data.getShortTitle() == null) return Long.MAX_VALUE;
+
+        return (timeMs / MINUTE_MS + 1) * MINUTE_MS;
+    }
+
+    private int read(ComplicationText text, long timeMs, char[] out) {
+
+        if (text == null || !data.isActive(timeMs)) return 0;
+
+        CharSequence chars = text.getText(context, timeMs);
+
+        return chars != null ? Chars.appendClipped(out, 0, chars) : 0;
+    }
+}
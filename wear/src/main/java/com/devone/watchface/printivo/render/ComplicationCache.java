@@ -0,0 +1,200 @@
+package com.devone.watchface.printivo.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+import com.devone.watchface.printivo.core.ComplicationSlot;
+import com.devone.watchface.printivo.core.Palette;
+
+/**
+ * Rasters of the complication slots, one per slot.
+ * <p/>
+ * A slot is rendered into its raster only when its {@link ComplicationSlot#version() version},
+ * the mode (one of the {@link LogoCache} variants) or its size changed since the raster was last
+ * rendered; every other frame just blits the raster.
+ */
+public class ComplicationCache {
+
+    private final Bitmap[] bitmaps;
+    private final int[] versions;
+    private final int[] variants;
+
+    private final Canvas canvas = new Canvas();
+    private final RectF oval = new RectF();
+
+    // Per variant
+    private final Paint[] textPaints = new Paint[3];
+    private final Paint[] titlePaints = new Paint[3];
+    private final Paint[] trackPaints = new Paint[3];
+    private final Paint[] valuePaints = new Paint[3];
+
+    private int renders;
+
+    public ComplicationCache(int slots, Palette palette, Typeface typeface) {
+
+        bitmaps = new Bitmap[slots];
+        versions = new int[slots];
+        variants = new int[slots];
+
+        for (int variant = 0; variant < 3; variant++) {
+
+            boolean ambient = variant != LogoCache.INTERACTIVE;
+            boolean antiAlias = variant != LogoCache.LOW_BIT_AMBIENT;
+
+            textPaints[variant] = textPaint(typeface, antiAlias,
+                    ambient ? palette.ambientText : palette.alt);
+            titlePaints[variant] = textPaint(typeface, antiAlias,
+                    ambient ? palette.ambientText : palette.base);
+
+            trackPaints[variant] = ringPaint(antiAlias, palette.base);
+            valuePaints[variant] = ringPaint(antiAlias,
+                    ambient ? palette.ambientText : palette.blue);
+        }
+
+        invalidate();
+    }
+
+    /**
+     * Draws slot {@code index} with its top left at ({@code x}, {@code y}), rendering its raster
+     * first if it is out of date.
+     */
+    public void draw(Canvas target, int index, ComplicationSlot slot, int variant,
+                     float x, float y) {
+
+        int size = (int) Math.ceil(slot.radius * 2);
+
+        if (size <= 0) return;
+
+        Bitmap bitmap = bitmaps[index];
+
+        if (bitmap == null || bitmap.getWidth() != size) {
+
+            if (bitmap != null) bitmap.recycle();
+
+            bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            bitmaps[index] = bitmap;
+            versions[index] = -1;
+        }
+
+        if (versions[index] != slot.version() || variants[index] != variant) {
+
+            bitmap.eraseColor(Color.TRANSPARENT);
+            canvas.setBitmap(bitmap);
+            render(canvas, slot, variant, size);
+            canvas.setBitmap(null);
+
+            versions[index] = slot.version();
+            variants[index] = variant;
+            renders++;
+        }
+
+        target.drawBitmap(bitmap, x, y, null);
+    }
+
+    /**
+     * Number of times a slot raster was rendered, to compare against the frames drawn
+     */
+    public int renders() {
+
+        return renders;
+    }
+
+    /**
+     * Bytes held by the slot rasters
+     */
+    public int byteCount() {
+
+        int bytes = 0;
+
+        for (Bitmap bitmap : bitmaps) {
+            if (bitmap != null) bytes += bitmap.getByteCount();
+        }
+
+        return bytes;
+    }
+
+    public void invalidate() {
+
+        for (int i = 0; i < versions.length; i++) versions[i] = -1;
+    }
+
+    public void release() {
+
+        for (int i = 0; i < bitmaps.length; i++) {
+
+            if (bitmaps[i] != null) {
+                bitmaps[i].recycle();
+                bitmaps[i] = null;
+            }
+        }
+
+        invalidate();
+    }
+
+    private void render(Canvas canvas, ComplicationSlot slot, int variant, int size) {
+
+        float centre = size / 2f;
+        float stroke = size / 16f;
+
+        oval.set(stroke, stroke, size - stroke, size - stroke);
+
+        // Ambient frames keep as few lit pixels as possible, no track there
+        if (variant == LogoCache.INTERACTIVE) {
+
+            Paint track = trackPaints[variant];
+            track.setStrokeWidth(stroke);
+            canvas.drawArc(oval, 0, 360, false, track);
+        }
+
+        if (slot.type == ComplicationSlot.TYPE_RANGED) {
+
+            Paint value = valuePaints[variant];
+            value.setStrokeWidth(stroke);
+            canvas.drawArc(oval, -90, 360 * slot.value, false, value);
+        }
+
+        Paint text = textPaints[variant];
+        Paint title = titlePaints[variant];
+
+        text.setTextSize(size / 4.5f);
+        title.setTextSize(size / 7f);
+
+        if (slot.titleLength == 0) {
+
+            // Centred on the middle of the slot
+            float baseline = centre - (text.ascent() + text.descent()) / 2;
+            canvas.drawText(slot.text, 0, slot.textLength, centre, baseline, text);
+
+        } else {
+
+            canvas.drawText(slot.text, 0, slot.textLength, centre, centre, text);
+            canvas.drawText(slot.title, 0, slot.titleLength, centre,
+                    centre - title.ascent() + size / 32f, title);
+        }
+    }
+
+    private static Paint textPaint(Typeface typeface, boolean antiAlias, int color) {
+
+        Paint paint = new Paint();
+        paint.setAntiAlias(antiAlias);
+        paint.setColor(color);
+        paint.setTypeface(typeface);
+        paint.setTextAlign(Paint.Align.CENTER);
+
+        return paint;
+    }
+
+    private static Paint ringPaint(boolean antiAlias, int color) {
+
+        Paint paint = new Paint();
+        paint.setAntiAlias(antiAlias);
+        paint.setColor(color);
+        paint.setStyle(Paint.Style.STROKE);
+
+        return paint;
+    }
+}
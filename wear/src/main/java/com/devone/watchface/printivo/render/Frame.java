@@ -0,0 +1,41 @@
+package com.devone.watchface.printivo.render;
+
+import com.devone.watchface.printivo.core.TextDiff;
+
+/**
+ * A rendered frame: its pixels plus what is needed to update it incrementally, i.e. the time text
+ * it shows, which render of the static layer it was composited with, which version of every
+ * complication it shows and where the ring sweep was.
+ */
+public class Frame {
+
+    /** Frames keep track of this many complication slots */
+    public static final int MAX_COMPLICATIONS = 4;
+
+    public final FrameBuffer buffer = new FrameBuffer();
+
+    /** The time glyphs (and AM/PM marker) currently in {@link #buffer} */
+    public final TextDiff time = new TextDiff(8);
+
+    /** {@link Layer#renders()} of the static layer when the buffer was last fully drawn */
+    public int layerRenders = -1;
+
+    /** {@link com.devone.watchface.printivo.core.ComplicationSlot#version()} of every slot shown */
+    public final int[] complications = new int[MAX_COMPLICATIONS];
+
+    /** {@link com.devone.watchface.printivo.core.FrameComposer#sweep()} when it was drawn */
+    public float sweep = -1;
+
+    /** The wall clock time the frame shows */
+    public long timeMs;
+
+    public void release() {
+
+        buffer.release();
+        time.clear();
+        layerRenders = -1;
+        sweep = -1;
+
+        for (int i = 0; i < MAX_COMPLICATIONS; i++) complications[i] = -1;
+    }
+}
@@ -0,0 +1,59 @@
+package com.devone.watchface.printivo.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * Off-screen copy of a frame rendered ahead of being shown, by the render thread or for the next
+ * ambient minute.
+ * <p/>
+ * Unlike the screen surface the buffer keeps its content, so bringing it to a later time leaves
+ * the parts that did not change as they were and only redraws the damaged regions. Frames drawn
+ * when they are shown go straight to the screen instead, copying a buffer would only add a blit.
+ */
+public class FrameBuffer {
+
+    private Bitmap bitmap;
+    private final Canvas canvas = new Canvas();
+
+    /**
+     * Makes sure the buffer matches the given size.
+     *
+     * @return true if the buffer was (re)created and its content is undefined
+     */
+    public boolean ensure(int width, int height) {
+
+        if (matches(width, height)) return false;
+
+        release();
+
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        canvas.setBitmap(bitmap);
+
+        return true;
+    }
+
+    public boolean matches(int width, int height) {
+
+        return bitmap != null && bitmap.getWidth() == width && bitmap.getHeight() == height;
+    }
+
+    public Canvas canvas() {
+
+        return canvas;
+    }
+
+    public void draw(Canvas target) {
+
+        target.drawBitmap(bitmap, 0, 0, null);
+    }
+
+    public void release() {
+
+        if (bitmap != null) {
+            canvas.setBitmap(null);
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.devone.watchface.printivo.render;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renders the next second's frame on a background thread while the current one is displayed.
+ * <p/>
+ * Two {@link Frame}s are used: the front one is owned by the main thread and presented, the other
+ * one is owned by the render thread while it draws the next second into it. A finished frame is
+ * handed back through an {@link AtomicReference}, so presenting it is a single lock free swap.
+ * <p/>
+ * While the pipeline runs the {@link Renderer} (and all the state it draws from) belongs to the
+ * render thread. Callers must {@link #stop()} it before touching that state on another thread;
+ * stopping waits for the thread to finish which also publishes its writes back.
+ */
+public class FramePipeline {
+
+    private static final int MSG_RENDER = 0;
+
+    public interface Renderer {
+
+        /**
+         * Brings {@code frame} up to date for {@code timeMs}. Called on the render thread, and
+         * once on the thread calling {@link #start(long)}.
+         */
+        void render(Frame frame, long timeMs);
+    }
+
+    private final Renderer renderer;
+
+    private final Frame[] frames = {new Frame(), new Frame()};
+
+    private final AtomicReference<Frame> ready = new AtomicReference<>();
+
+    private HandlerThread thread;
+    private Handler handler;
+
+    private Frame front;
+
+    private int presented;
+    private int late;
+
+    public FramePipeline(Renderer renderer) {
+
+        this.renderer = renderer;
+    }
+
+    public boolean isRunning() {
+
+        return thread != null;
+    }
+
+    /**
+     * Renders the frame for {@code nowMs} on the calling thread, so there always is a front frame
+     * to display, and starts preparing the next one on the render thread
+     */
+    public void start(long nowMs) {
+
+        if (thread != null) return;
+
+        // Still owned by the caller, starting the thread publishes it
+        front = frames[1];
+        front.timeMs = nowMs;
+        renderer.render(front, nowMs);
+
+        thread = new HandlerThread("FramePipeline", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+
+        handler = new Handler(thread.getLooper(), new Handler.Callback() {
+            @Override
+            public boolean handleMessage(Message msg) {
+
+                if (msg.what != MSG_RENDER) return false;
+
+                Frame frame = (Frame) msg.obj;
+                renderer.render(frame, frame.timeMs);
+                ready.set(frame);
+
+                return true;
+            }
+        });
+
+        ready.set(null);
+
+        request(frames[0], nowMs);
+    }
+
+    /**
+     * Stops the render thread and waits for it to exit, after which the frames and the renderer
+     * state belong to the calling thread again.
+     */
+    public void stop() {
+
+        if (thread == null) return;
+
+        handler.removeMessages(MSG_RENDER);
+        thread.quit();
+
+        boolean interrupted = false;
+
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) Thread.currentThread().interrupt();
+
+        thread = null;
+        handler = null;
+        front = null;
+        ready.set(null);
+    }
+
+    /**
+     * Makes the frame prepared for the current second the front frame and starts preparing the
+     * following one. If the render thread has not delivered it in time the previous front frame
+     * stays up and the frame is counted as late.
+     */
+    public void present(long nowMs) {
+
+        if (thread == null) return;
+
+        Frame next = ready.getAndSet(null);
+
+        if (next == null) {
+            // Still rendering, it will be picked up (and most likely be stale) on the next tick
+            late++;
+            return;
+        }
+
+        if (next.timeMs / 1000 != nowMs / 1000) {
+            // Finished but for a second that already passed, render it again
+            late++;
+            request(next, nowMs);
+            return;
+        }
+
+        presented++;
+
+        front = next;
+        request(next == frames[0] ? frames[1] : frames[0], nowMs);
+    }
+
+    /**
+     * The frame to display, null while the pipeline is not running
+     */
+    public Frame front() {
+
+        return front;
+    }
+
+    public int presented() {
+
+        return presented;
+    }
+
+    public int late() {
+
+        return late;
+    }
+
+    public void release() {
+
+        stop();
+
+        for (Frame frame : frames) frame.release();
+    }
+
+    /**
+     * Hands {@code frame} to the render thread to be drawn for the start of the next second
+     */
+    private void request(Frame frame, long nowMs) {
+
+        // Written before the frame is posted, the message queue publishes it to the render thread
+        frame.timeMs = (nowMs / 1000 + 1) * 1000;
+
+        handler.sendMessage(handler.obtainMessage(MSG_RENDER, frame));
+    }
+}
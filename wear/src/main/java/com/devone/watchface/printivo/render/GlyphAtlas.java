@@ -0,0 +1,250 @@
+package com.devone.watchface.printivo.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Pre-rasterized glyphs for the time text.
+ * <p/>
+ * The time only ever shows the digits, ':' and the two AM/PM markers, so those are drawn once into
+ * an {@link Bitmap.Config#ALPHA_8} atlas together with their advance widths and the kerning
+ * between every pair of time glyphs. Drawing the time is then a sequence of bitmap blits tinted
+ * by the paint color instead of text shaping.
+ * <p/>
+ * The AM/PM markers are locale dependent strings so each of them is stored as a single cell.
+ */
+public class GlyphAtlas {
+
+    public static final int COLON = 10;
+    public static final int AM = 11;
+    public static final int PM = 12;
+
+    private static final int TIME_GLYPHS = 11;
+    private static final int GLYPHS = 13;
+
+    /** Transparent gap around every cell so filtering never bleeds neighbouring glyphs in */
+    private static final int PADDING = 1;
+
+    private final Bitmap bitmap;
+
+    // Per glyph source cell in the atlas: left, top, right, bottom
+    private final int[] cells = new int[GLYPHS * 4];
+
+    // Per glyph offset of the cell from the pen position on the baseline: x, y
+    private final float[] offsets = new float[GLYPHS * 2];
+
+    private final float[] advances = new float[GLYPHS];
+
+    // Extra advance between time glyph a followed by b at [a * TIME_GLYPHS + b]
+    private final float[] kerning = new float[TIME_GLYPHS * TIME_GLYPHS];
+
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    /**
+     * @param timePaint paint holding the typeface and size of the digits
+     * @param ampmPaint paint holding the typeface and size of the AM/PM markers
+     * @param antiAlias whether the glyphs are rasterized with anti-aliasing
+     */
+    public GlyphAtlas(Paint timePaint, Paint ampmPaint, char[] am, char[] pm, boolean antiAlias) {
+
+        char[][] glyphs = new char[GLYPHS][];
+        for (int i = 0; i < 10; i++) glyphs[i] = new char[]{(char) ('0' + i)};
+        glyphs[COLON] = new char[]{':'};
+        glyphs[AM] = am;
+        glyphs[PM] = pm;
+
+        Paint time = raster(timePaint, antiAlias);
+        Paint ampm = raster(ampmPaint, antiAlias);
+
+        // Lay the cells out on two rows, the time glyphs first and the markers below them
+        Paint.FontMetrics tfm = time.getFontMetrics();
+        Paint.FontMetrics afm = ampm.getFontMetrics();
+
+        int timeTop = (int) Math.floor(tfm.top);
+        int timeHeight = (int) Math.ceil(tfm.bottom) - timeTop + PADDING * 2;
+
+        int ampmTop = (int) Math.floor(afm.top);
+        int ampmHeight = (int) Math.ceil(afm.bottom) - ampmTop + PADDING * 2;
+
+        Rect bounds = new Rect();
+
+        int x = 0, row = 0, rowWidth = 0, width = 0;
+
+        for (int g = 0; g < GLYPHS; g++) {
+
+            if (g == AM) {
+                width = Math.max(width, rowWidth);
+                row = timeHeight;
+                rowWidth = 0;
+                x = 0;
+            }
+
+            Paint paint = g < AM ? time : ampm;
+            char[] text = glyphs[g];
+
+            paint.getTextBounds(text, 0, text.length, bounds);
+            advances[g] = paint.measureText(text, 0, text.length);
+
+            int left = Math.min(0, bounds.left);
+            int right = Math.max((int) Math.ceil(advances[g]), bounds.right);
+            int cellWidth = right - left + PADDING * 2;
+
+            int cellTop = g < AM ? timeTop : ampmTop;
+            int cellHeight = g < AM ? timeHeight : ampmHeight;
+
+            cells[g * 4] = x;
+            cells[g * 4 + 1] = row;
+            cells[g * 4 + 2] = x + cellWidth;
+            cells[g * 4 + 3] = row + cellHeight;
+
+            offsets[g * 2] = left - PADDING;
+            offsets[g * 2 + 1] = cellTop - PADDING;
+
+            x += cellWidth;
+            rowWidth = x;
+        }
+
+        width = Math.max(width, rowWidth);
+
+        bitmap = Bitmap.createBitmap(width, timeHeight + ampmHeight, Bitmap.Config.ALPHA_8);
+
+        Canvas canvas = new Canvas(bitmap);
+
+        for (int g = 0; g < GLYPHS; g++) {
+
+            Paint paint = g < AM ? time : ampm;
+            char[] text = glyphs[g];
+
+            float penX = cells[g * 4] - offsets[g * 2];
+            float penY = cells[g * 4 + 1] - offsets[g * 2 + 1];
+
+            canvas.drawText(text, 0, text.length, penX, penY, paint);
+        }
+
+        char[] pair = new char[2];
+
+        for (int a = 0; a < TIME_GLYPHS; a++) {
+            for (int b = 0; b < TIME_GLYPHS; b++) {
+
+                pair[0] = glyphs[a][0];
+                pair[1] = glyphs[b][0];
+
+                kerning[a * TIME_GLYPHS + b] =
+                        time.measureText(pair, 0, 2) - advances[a] - advances[b];
+            }
+        }
+    }
+
+    /**
+     * Draws the time glyphs in {@code text} with the pen starting at ({@code x}, {@code baseline})
+     * and returns the pen position after the last glyph. The glyphs are tinted with the color of
+     * {@code paint}.
+     */
+    public float drawTime(Canvas canvas, char[] text, int start, int count,
+                          float x, float baseline, Paint paint) {
+
+        int end = start + count;
+
+        for (int i = start; i < end; i++) {
+
+            int g = index(text[i]);
+
+            draw(canvas, g, x, baseline, paint);
+            x += advances[g];
+
+            if (i + 1 < end) x += kerning[g * TIME_GLYPHS + index(text[i + 1])];
+        }
+
+        return x;
+    }
+
+    /**
+     * Draws the {@link #AM} or {@link #PM} marker and returns the pen position after it
+     */
+    public float drawMarker(Canvas canvas, int marker, float x, float baseline, Paint paint) {
+
+        draw(canvas, marker, x, baseline, paint);
+
+        return x + advances[marker];
+    }
+
+    /**
+     * Writes the pixel bounds covered by drawing {@code text} followed by {@code marker} (as
+     * {@link #drawTime} and {@link #drawMarker} would from {@code x}), skipping the glyphs before
+     * {@code from}.
+     */
+    public void bounds(char[] text, int count, int marker, int from,
+                       float x, float baseline, Rect out) {
+
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+
+        for (int i = 0; i <= count; i++) {
+
+            int g = i < count ? index(text[i]) : marker;
+
+            if (i >= from) {
+
+                int c = g * 4;
+                float l = x + offsets[g * 2];
+                float t = baseline + offsets[g * 2 + 1];
+
+                left = Math.min(left, l);
+                top = Math.min(top, t);
+                right = Math.max(right, l + cells[c + 2] - cells[c]);
+                bottom = Math.max(bottom, t + cells[c + 3] - cells[c + 1]);
+            }
+
+            if (i < count) {
+                x += advances[g];
+                if (i + 1 < count) x += kerning[g * TIME_GLYPHS + index(text[i + 1])];
+            }
+        }
+
+        out.set((int) Math.floor(left), (int) Math.floor(top),
+                (int) Math.ceil(right), (int) Math.ceil(bottom));
+    }
+
+    public int byteCount() {
+
+        return bitmap.getByteCount();
+    }
+
+    public void release() {
+
+        bitmap.recycle();
+    }
+
+    private void draw(Canvas canvas, int g, float x, float baseline, Paint paint) {
+
+        int c = g * 4;
+        src.set(cells[c], cells[c + 1], cells[c + 2], cells[c + 3]);
+
+        float left = x + offsets[g * 2];
+        float top = baseline + offsets[g * 2 + 1];
+        dst.set(left, top, left + src.width(), top + src.height());
+
+        canvas.drawBitmap(bitmap, src, dst, paint);
+    }
+
+    private static int index(char c) {
+
+        return c == ':' ? COLON : c - '0';
+    }
+
+    private static Paint raster(Paint source, boolean antiAlias) {
+
+        Paint paint = new Paint();
+        paint.setAntiAlias(antiAlias);
+        paint.setColor(Color.WHITE);
+        paint.setTypeface(source.getTypeface());
+        paint.setTextSize(source.getTextSize());
+
+        return paint;
+    }
+}
@@ -0,0 +1,138 @@
+package com.devone.watchface.printivo.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Picture;
+
+/**
+ * An off-screen buffer holding part of the watch face that rarely changes.
+ * <p/>
+ * The content is rendered through {@link #onRender(Canvas)} only after the layer has been
+ * {@link #invalidate() invalidated} (or resized); every other frame just blits the buffer.
+ * <p/>
+ * When {@link #setRecording(boolean) recording} the content is kept as a {@link Picture} of the
+ * draw commands instead, replayed on every draw. That trades the full screen bitmap for the cost
+ * of re-issuing the (few) recorded commands.
+ */
+public abstract class Layer {
+
+    private Bitmap bitmap;
+    private final Canvas canvas = new Canvas();
+
+    private boolean recording;
+    private Picture picture;
+
+    private boolean dirty = true;
+
+    private int renders;
+
+    public void invalidate() {
+
+        dirty = true;
+    }
+
+    public boolean isDirty() {
+
+        return dirty;
+    }
+
+    /**
+     * Switches between keeping the content as a bitmap and as a recorded {@link Picture}. The
+     * content is rendered again on the next draw.
+     */
+    public void setRecording(boolean recording) {
+
+        if (recording == this.recording) return;
+
+        release();
+
+        this.recording = recording;
+    }
+
+    public boolean isRecording() {
+
+        return recording;
+    }
+
+    /**
+     * Composites the layer onto {@code target}, rendering it first if it is out of date.
+     */
+    public void draw(Canvas target, int width, int height) {
+
+        if (recording) {
+            drawPicture(target, width, height);
+            return;
+        }
+
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+
+            release();
+
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            canvas.setBitmap(bitmap);
+            dirty = true;
+        }
+
+        if (dirty) {
+
+            bitmap.eraseColor(Color.TRANSPARENT);
+            onRender(canvas);
+
+            dirty = false;
+            renders++;
+        }
+
+        target.drawBitmap(bitmap, 0, 0, null);
+    }
+
+    private void drawPicture(Canvas target, int width, int height) {
+
+        if (picture == null || picture.getWidth() != width || picture.getHeight() != height) {
+            dirty = true;
+        }
+
+        if (dirty) {
+
+            picture = new Picture();
+            onRender(picture.beginRecording(width, height));
+            picture.endRecording();
+
+            dirty = false;
+            renders++;
+        }
+
+        target.drawPicture(picture);
+    }
+
+    /**
+     * Number of times the layer content has been rendered, mostly useful when debugging
+     */
+    public int renders() {
+
+        return renders;
+    }
+
+    /**
+     * Bytes held by the bitmap, 0 while recording
+     */
+    public int byteCount() {
+
+        return bitmap != null ? bitmap.getByteCount() : 0;
+    }
+
+    public void release() {
+
+        picture = null;
+
+        if (bitmap != null) {
+            canvas.setBitmap(null);
+            bitmap.recycle();
+            bitmap = null;
+        }
+
+        dirty = true;
+    }
+
+    protected abstract void onRender(Canvas canvas);
+}
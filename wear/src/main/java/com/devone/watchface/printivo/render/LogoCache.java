@@ -0,0 +1,171 @@
+package com.devone.watchface.printivo.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import com.devone.watchface.printivo.text.LayoutCache;
+
+/**
+ * Holds the "printivo" logo rasterized once per display variant so that drawing it is a single
+ * bitmap blit.
+ * <p/>
+ * The logo only depends on its size, colors and the mode it is drawn in, so the rasters are kept
+ * until {@link #invalidate()} is called by the owner when one of those changes.
+ * <p/>
+ * When {@link #setRecording(boolean) recording} the logo's draw commands (the text and the
+ * shapes of its span) are kept as a {@link Picture} per variant instead of a raster.
+ */
+public class LogoCache {
+
+    public static final int INTERACTIVE = 0;
+    public static final int AMBIENT = 1;
+    public static final int LOW_BIT_AMBIENT = 2;
+
+    private final Bitmap[] bitmaps = new Bitmap[3];
+    private final Picture[] pictures = new Picture[3];
+
+    private boolean recording;
+
+    private final LayoutCache layoutCache;
+
+    public LogoCache(LayoutCache layoutCache) {
+
+        this.layoutCache = layoutCache;
+    }
+
+    /**
+     * Returns the raster for {@code variant}, drawing {@code text} with {@code paint} if there
+     * is none yet. The paint must already be configured for the variant (color, anti-aliasing).
+     */
+    public Bitmap obtain(int variant, CharSequence text, TextPaint paint, int width) {
+
+        Bitmap bitmap = bitmaps[variant];
+
+        if (bitmap == null) {
+
+            StaticLayout layout = layoutCache.obtain(text, paint, width, variant != INTERACTIVE);
+
+            int w = Math.max(1, (int) Math.ceil(layout.getLineWidth(0)));
+            int h = Math.max(1, layout.getHeight());
+
+            bitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            layout.draw(new Canvas(bitmap));
+
+            bitmaps[variant] = bitmap;
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Records the logo for {@code variant} if there is no picture of it yet
+     */
+    public Picture obtainPicture(int variant, CharSequence text, TextPaint paint, int width) {
+
+        Picture picture = pictures[variant];
+
+        if (picture == null) {
+
+            StaticLayout layout = layoutCache.obtain(text, paint, width, variant != INTERACTIVE);
+
+            int w = Math.max(1, (int) Math.ceil(layout.getLineWidth(0)));
+            int h = Math.max(1, layout.getHeight());
+
+            picture = new Picture();
+            layout.draw(picture.beginRecording(w, h));
+            picture.endRecording();
+
+            pictures[variant] = picture;
+        }
+
+        return picture;
+    }
+
+    /**
+     * Draws the logo for {@code variant} with its top left at ({@code x}, {@code y}) from the
+     * raster or, when recording, the picture
+     */
+    public void draw(Canvas canvas, int variant, CharSequence text, TextPaint paint, int width,
+                     float x, float y) {
+
+        if (!recording) {
+            canvas.drawBitmap(obtain(variant, text, paint, width), x, y, null);
+            return;
+        }
+
+        Picture picture = obtainPicture(variant, text, paint, width);
+
+        canvas.save();
+        canvas.translate(x, y);
+        canvas.drawPicture(picture);
+        canvas.restore();
+    }
+
+    /**
+     * Makes sure the raster or picture for {@code variant} exists
+     */
+    public void prepare(int variant, CharSequence text, TextPaint paint, int width) {
+
+        if (recording) {
+            obtainPicture(variant, text, paint, width);
+        } else {
+            obtain(variant, text, paint, width);
+        }
+    }
+
+    /**
+     * Switches between rasters and pictures, dropping whatever is held
+     */
+    public void setRecording(boolean recording) {
+
+        if (recording == this.recording) return;
+
+        invalidate();
+
+        this.recording = recording;
+    }
+
+    /**
+     * The layouts the logo is rasterized or recorded from, for their hit and miss counts
+     */
+    public LayoutCache layouts() {
+
+        return layoutCache;
+    }
+
+    public boolean isRecording() {
+
+        return recording;
+    }
+
+    /**
+     * Bytes held by the rasters, 0 while recording
+     */
+    public int byteCount() {
+
+        int bytes = 0;
+        for (Bitmap bitmap : bitmaps) if (bitmap != null) bytes += bitmap.getByteCount();
+
+        return bytes;
+    }
+
+    public void invalidate() {
+
+        for (int i = 0; i < bitmaps.length; i++) {
+
+            if (bitmaps[i] != null) bitmaps[i].recycle();
+            bitmaps[i] = null;
+            pictures[i] = null;
+        }
+    }
+
+    public static int variant(boolean ambient, boolean lowBitAmbient) {
+
+        if (!ambient) return INTERACTIVE;
+
+        return lowBitAmbient ? LOW_BIT_AMBIENT : AMBIENT;
+    }
+}
@@ -0,0 +1,140 @@
+package com.devone.watchface.printivo.render;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import com.devone.watchface.printivo.core.Palette;
+
+/**
+ * Everything needed to draw the face in one mode (interactive, ambient or low-bit ambient): the
+ * paints, the glyph atlas and the logo.
+ * <p/>
+ * A profile is built once per mode and never mutated afterwards, so a mode change is a single
+ * reference swap. Paints are prebuilt for every palette color the mode draws with, the draw path
+ * looks the one for a color up instead of setting the color on a shared paint.
+ */
+public class RenderProfile {
+
+    /** One of the {@link LogoCache} variants */
+    public final int variant;
+
+    public final GlyphAtlas atlas;
+
+    private final PaintSet date;
+    private final PaintSet glyph;
+    private final PaintSet decor;
+
+    private final TextPaint logoPaint;
+    private final CharSequence logoText;
+    private final LogoCache logoCache;
+    private final int logoWidth;
+
+    /**
+     * @param datePaint template for the date paint, only its typeface and size are used
+     * @param logoPaint template for the logo paint, only its typeface and size are used
+     */
+    public RenderProfile(int variant, Palette palette, GlyphAtlas atlas,
+                         TextPaint datePaint, TextPaint logoPaint, CharSequence logoText,
+                         LogoCache logoCache, int logoWidth) {
+
+        this.variant = variant;
+        this.atlas = atlas;
+
+        boolean ambient = variant != LogoCache.INTERACTIVE;
+        boolean antiAlias = variant != LogoCache.LOW_BIT_AMBIENT;
+
+        date = new PaintSet(new TextPaint(datePaint), antiAlias, palette.alt);
+        glyph = new PaintSet(new Paint(), antiAlias, ambient ? palette.ambientText : palette.alt);
+        decor = new PaintSet(new Paint(), antiAlias,
+                palette.blue, palette.pink, palette.yellow, palette.base);
+
+        this.logoPaint = new TextPaint(logoPaint);
+        this.logoPaint.setAntiAlias(antiAlias);
+        this.logoPaint.setColor(ambient ? palette.ambientP : palette.base);
+
+        this.logoText = logoText;
+        this.logoCache = logoCache;
+        this.logoWidth = logoWidth;
+    }
+
+    public boolean isAmbient() {
+
+        return variant != LogoCache.INTERACTIVE;
+    }
+
+    public Paint date(int color) {
+
+        return date.get(color);
+    }
+
+    public Paint glyph(int color) {
+
+        return glyph.get(color);
+    }
+
+    public Paint decor(int color) {
+
+        return decor.get(color);
+    }
+
+    /**
+     * Draws the logo of this mode with its top left at ({@code x}, {@code y}). It is rasterized
+     * (or recorded) on first use and kept until the {@link LogoCache} is invalidated.
+     */
+    public void drawLogo(Canvas canvas, float x, float y) {
+
+        logoCache.draw(canvas, variant, logoText, logoPaint, logoWidth, x, y);
+    }
+
+    /**
+     * Rasterizes (or records) the logo of this mode ahead of its first use
+     */
+    public void prepareLogo() {
+
+        logoCache.prepare(variant, logoText, logoPaint, logoWidth);
+    }
+
+    /**
+     * Paints that only differ in their color, one per color.
+     */
+    private static final class PaintSet {
+
+        private static final int CAPACITY = 8;
+
+        private final Paint template;
+
+        private final int[] colors = new int[CAPACITY];
+        private final Paint[] paints = new Paint[CAPACITY];
+        private int size;
+
+        PaintSet(Paint template, boolean antiAlias, int... colors) {
+
+            this.template = template;
+            template.setAntiAlias(antiAlias);
+
+            for (int color : colors) get(color);
+        }
+
+        Paint get(int color) {
+
+            for (int i = 0; i < size; i++) {
+                if (colors[i] == color) return paints[i];
+            }
+
+            // Only reached while building the set, unless a caller draws with a color that is
+            // not in the palette
+            Paint paint = template instanceof TextPaint
+                    ? new TextPaint(template) : new Paint(template);
+            paint.setColor(color);
+
+            if (size == CAPACITY) return paint;
+
+            colors[size] = color;
+            paints[size] = paint;
+            size++;
+
+            return paint;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.devone.watchface.printivo.render;
+
+import android.graphics.Typeface;
+import android.text.TextPaint;
+
+import com.devone.watchface.printivo.core.Palette;
+import com.devone.watchface.printivo.text.LayoutCache;
+
+/**
+ * A palette compiled into everything the face draws with in it: a {@link RenderProfile} per mode
+ * and the logo and complication rasters.
+ * <p/>
+ * Themes are compiled once and kept side by side, so switching to another one only swaps the
+ * references the engine draws with. The glyph atlases hold no color and are shared by all themes.
+ */
+public class Theme {
+
+    public final String name;
+    public final Palette palette;
+
+    public final LogoCache logoCache = new LogoCache(new LayoutCache(2));
+    public final ComplicationCache complicationCache;
+
+    private final RenderProfile[] profiles = new RenderProfile[3];
+
+    public Theme(String name, Palette palette, int complications, Typeface complicationTypeface) {
+
+        this.name = name;
+        this.palette = palette;
+
+        complicationCache = new ComplicationCache(complications, palette, complicationTypeface);
+    }
+
+    /**
+     * Builds the profile of every mode, again whenever the atlases or the paint templates change
+     *
+     * @param logoText        logo spanned with this theme's colors
+     * @param ambientLogoText same for the ambient modes
+     */
+    public void compile(GlyphAtlas atlas, GlyphAtlas aliasedAtlas, TextPaint datePaint,
+                        TextPaint logoPaint, CharSequence logoText, CharSequence ambientLogoText,
+                        int width) {
+
+        profiles[LogoCache.INTERACTIVE] = new RenderProfile(LogoCache.INTERACTIVE, palette,
+                atlas, datePaint, logoPaint, logoText, logoCache, width);
+        profiles[LogoCache.AMBIENT] = new RenderProfile(LogoCache.AMBIENT, palette,
+                atlas, datePaint, logoPaint, ambientLogoText, logoCache, width);
+        profiles[LogoCache.LOW_BIT_AMBIENT] = new RenderProfile(LogoCache.LOW_BIT_AMBIENT,
+                palette, aliasedAtlas, datePaint, logoPaint, ambientLogoText, logoCache, width);
+    }
+
+    /**
+     * @param variant one of the {@link LogoCache} variants
+     */
+    public RenderProfile profile(int variant) {
+
+        return profiles[variant];
+    }
+
+    /**
+     * Rasterizes (or records) the logo of every mode ahead of its first use
+     */
+    public void prepare() {
+
+        for (RenderProfile profile : profiles) profile.prepareLogo();
+    }
+
+    public void setRecording(boolean recording) {
+
+        logoCache.setRecording(recording);
+    }
+
+    /**
+     * Drops the rasters, they are rendered again on their next use
+     */
+    public void invalidate() {
+
+        logoCache.invalidate();
+        complicationCache.invalidate();
+    }
+
+    /**
+     * Bytes held by the rasters of this theme
+     */
+    public int byteCount() {
+
+        return logoCache.byteCount() + complicationCache.byteCount();
+    }
+
+    public void release() {
+
+        logoCache.invalidate();
+        complicationCache.release();
+    }
+}
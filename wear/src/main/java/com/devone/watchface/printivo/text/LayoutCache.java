@@ -0,0 +1,45 @@
+package com.devone.watchface.printivo.text;
+
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import com.devone.watchface.printivo.core.TextLayoutCache;
+
+/**
+ * Small cache of measured {@link StaticLayout}s, keyed on the state of the {@link TextPaint} they
+ * are built with (see {@link TextLayoutCache}).
+ */
+public class LayoutCache extends TextLayoutCache<TextPaint, StaticLayout> {
+
+    public LayoutCache(int capacity) {
+
+        super(capacity);
+    }
+
+    public StaticLayout obtain(CharSequence text, TextPaint paint, int width, boolean ambient) {
+
+        return obtain(text, paint, paint.getColor(), paint.getTypeface(), paint.getTextSize(),
+                paint.getFlags(), ambient, width);
+    }
+
+    @Override
+    protected StaticLayout build(CharSequence text, TextPaint paint, int width) {
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+
+            return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                    .setAlignment(Layout.Alignment.ALIGN_NORMAL)
+                    .setLineSpacing(0f, 1f)
+                    .setIncludePad(false)
+                    .build()
+            ;
+
+        } else {
+
+            return new StaticLayout(text, paint,
+                    width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+        }
+    }
+}
@@ -1,38 +1,254 @@
 package com.devone.watchface.printivo.typeface;
 
 import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Paint;
 import android.graphics.Typeface;
-import android.support.annotation.Nullable;
-import android.text.TextUtils;
+import android.util.Log;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.CountDownLatch;
 
 /**
- * Adapted from github.com/romannurik/muzei/
+ * Registry of the bundled Myriad-Pro typefaces.
+ * <p/>
+ * The assets usually hold subsets of the fonts with the glyphs the face renders with each of them
+ * (see the subsetFonts task in the wear build), each next to the list of characters it covers.
+ * Drawing any other text with a subset shows nothing, so text that is not known up front has to
+ * be checked with {@link #covers(int, char[])} first. Builds with the full fonts have no lists,
+ * every text is covered then.
+ * <p/>
+ * All faces are loaded in parallel, one background thread each, by {@link #preload(Context)} when
+ * the service starts. Lookups are by index into a fixed array so the draw path never locks or
+ * touches the assets once loading has finished. A font that cannot be loaded is replaced by the
+ * system typeface, which covers no text, rather than leaving the lookups waiting.
  * <p/>
  * Also see https://code.google.com/p/android/issues/detail?id=9904
  */
 public class Font {
 
-    private static final Map<String, Typeface> cache = new HashMap<String, Typeface>();
+    private static final String TAG = "Font";
+
+    public static final int REGULAR = 0;
+    public static final int SEMIBOLD = 1;
+    public static final int BOLD = 2;
+
+    /**
+     * Identifies the bundled fonts and their subsets, bump it whenever either changes so metrics
+     * cached from the old fonts are dropped
+     */
+    public static final int VERSION = 1;
+
+    private static final String[] NAMES = {"Myriad-Pro", "Myriad-Pro-Semibold", "Myriad-Pro-Bold"};
+
+    /** Text size the font metrics are measured at, scaled linearly for other sizes */
+    private static final float METRICS_SIZE = 100f;
+
+    private static final Typeface[] typefaces = new Typeface[NAMES.length];
+    private static final Paint.FontMetrics[] metrics = new Paint.FontMetrics[NAMES.length];
+
+    // The characters of every subset, null for a full font
+    private static final String[] glyphs = new String[NAMES.length];
+
+    private static final CountDownLatch loaded = new CountDownLatch(NAMES.length);
+
+    private static volatile boolean ready;
+    private static boolean started;
 
     private Font() {}
 
-    public static Typeface get(Context context, @Nullable String font) {
+    /**
+     * Starts loading every typeface off the calling thread. Only the first call has an effect.
+     */
+    public static void preload(Context context) {
 
-        synchronized (cache) {
+        synchronized (Font.class) {
+            if (started) return;
+            started = true;
+        }
+
+        AssetManager assets = context.getApplicationContext().getAssets();
+
+        for (int i = 0; i < NAMES.length; i++) {
+
+            Thread thread = new Thread(new Loader(assets, i), "Font preload " + NAMES[i]);
+
+            thread.setPriority(Thread.NORM_PRIORITY);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns the typeface at {@code index}, waiting for {@link #preload(Context)} to finish if
+     * it has not yet.
+     */
+    public static Typeface get(int index) {
+
+        await();
+
+        return typefaces[index];
+    }
+
+    /**
+     * Writes the metrics of the typeface at {@code index} scaled to {@code size} into {@code out}
+     */
+    public static Paint.FontMetrics metrics(int index, float size, Paint.FontMetrics out) {
+
+        await();
+
+        Paint.FontMetrics fm = metrics[index];
+        float scale = size / METRICS_SIZE;
+
+        out.top = fm.top * scale;
+        out.ascent = fm.ascent * scale;
+        out.descent = fm.descent * scale;
+        out.bottom = fm.bottom * scale;
+        out.leading = fm.leading * scale;
+
+        return out;
+    }
+
+    /**
+     * Whether the typeface at {@code index} has a glyph for every character of {@code text}
+     */
+    public static boolean covers(int index, char[] text) {
+
+        await();
+
+        String covered = glyphs[index];
+
+        if (covered == null) return true;
+
+        for (char c : text) {
+            if (covered.indexOf(c) < 0) return false;
+        }
+
+        return true;
+    }
+
+    public static boolean isReady() {
+
+        return ready;
+    }
+
+    private static String path(String name, String extension) {
+
+        return "fonts/" + name + extension;
+    }
 
-            if (!TextUtils.isEmpty(font) && !cache.containsKey(font)) {
+    /**
+     * Reads the characters the subset {@code name} covers, null if it is a full font
+     */
+    private static String readGlyphs(AssetManager assets, String name) {
 
-                Typeface tf = Typeface.createFromAsset(context.getApplicationContext().getAssets(),
-                        "fonts/" + font + ".ttf");
+        InputStream in = null;
 
-                cache.put(font, tf);
+        try {
+
+            in = assets.open(path(name, ".txt"));
+
+            Reader reader = new InputStreamReader(in, "UTF-8");
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[256];
+
+            for (int n; (n = reader.read(buffer)) >= 0; ) text.append(buffer, 0, n);
+
+            return text.toString();
+
+        } catch (FileNotFoundException e) {
+
+            return null;
+
+        } catch (IOException e) {
+
+            // Assumes nothing beyond what the face always draws with it
+            return "";
+
+        } finally {
+
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
             }
+        }
+    }
+
+    /**
+     * Blocks until every typeface is loaded
+     */
+    public static void await() {
+
+        if (ready) return;
+
+        synchronized (Font.class) {
+            if (!started) throw new IllegalStateException("Font.preload has not been called");
+        }
+
+        boolean interrupted = false;
 
-            return cache.get(font);
+        while (true) {
+            try {
+                loaded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
         }
+
+        if (interrupted) Thread.currentThread().interrupt();
     }
-}
 
+    private static class Loader implements Runnable {
+
+        private final AssetManager assets;
+        private final int index;
+
+        Loader(AssetManager assets, int index) {
+
+            this.assets = assets;
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+
+            Paint paint = new Paint();
+            paint.setTextSize(METRICS_SIZE);
+
+            try {
+
+                typefaces[index] = Typeface.createFromAsset(assets, path(NAMES[index], ".ttf"));
+                glyphs[index] = readGlyphs(assets, NAMES[index]);
+
+                paint.setTypeface(typefaces[index]);
+                metrics[index] = paint.getFontMetrics();
+
+            } catch (RuntimeException e) {
+
+                // A missing or broken asset: the system font, checked for every text
+                Log.e(TAG, "Could not load " + NAMES[index], e);
+
+                typefaces[index] = Typeface.DEFAULT;
+                glyphs[index] = "";
+
+                paint.setTypeface(Typeface.DEFAULT);
+                metrics[index] = paint.getFontMetrics();
+
+            } finally {
+
+                // The latch publishes every loader's writes to whoever it releases; the last one
+                // to finish also sets the volatile flag that lets later lookups skip the latch.
+                // Counted down whatever happened, a waiting startup must never hang.
+                loaded.countDown();
+
+                if (loaded.getCount() == 0) ready = true;
+            }
+        }
+    }
+}
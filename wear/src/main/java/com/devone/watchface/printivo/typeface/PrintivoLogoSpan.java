@@ -4,6 +4,7 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Typeface;
 import android.text.style.ReplacementSpan;
 
 /**
@@ -11,15 +12,11 @@ import android.text.style.ReplacementSpan;
  */
 public class PrintivoLogoSpan extends ReplacementSpan {
 
-    private int[] colors = new int[4];
+    private final int[] colors;
 
-    private float xheight;
-    private float tightwidth;
+    private final Paint colorPaint;
 
-    private int totalwidth;
-    private int totalheight;
-
-    private Paint colorPaint;
+    private final RectF rectf = new RectF();
 
     public PrintivoLogoSpan(int base, int yellow, int pink, int blue) {
 
@@ -33,20 +30,7 @@ public class PrintivoLogoSpan extends ReplacementSpan {
     @Override
     public int getSize(Paint paint, CharSequence text, int start, int end, Paint.FontMetricsInt fm) {
 
-        Rect rect = new Rect();
-
-        String i = "i", o = "o";
-
-        paint.getTextBounds(o, 0, 1, rect);
-        xheight = rect.height();
-
-        paint.getTextBounds(i, 0, 1, rect);
-        tightwidth = rect.width();
-        totalheight = rect.height();
-
-        totalwidth = (int) paint.measureText(i);
-
-        return totalwidth;
+        return Metrics.of(paint).totalwidth;
     }
 
     @Override
@@ -55,17 +39,14 @@ public class PrintivoLogoSpan extends ReplacementSpan {
 
         // TODO Make the drawing respect paints text Align setting
 
-        // should preallocate this rect and reuse for drawing
-        RectF rectf = new RectF();
+        Metrics metrics = Metrics.of(paint);
 
-        // Reducing width slightly (-1) because it looks better
-        // Comment this decrement to see the difference
-        tightwidth--;
+        float tightwidth = metrics.tightwidth;
 
         // (x, y) is initialized to the baseline left of the rect that the i glyph will draw in
         // this includes dx which is the space on either side of the i glyph
-        float dx = (totalwidth - tightwidth) / 2f;
-        float dy = xheight / 4;
+        float dx = (metrics.totalwidth - tightwidth) / 2f;
+        float dy = metrics.xheight / 4;
 
         float l, t, r, b, cx, cy;
 
@@ -92,11 +73,77 @@ public class PrintivoLogoSpan extends ReplacementSpan {
         }
 
         cx = x + tightwidth / 2;
-        cy = y - totalheight + tightwidth / 2;
+        cy = y - metrics.totalheight + tightwidth / 2;
 
         // draw the dot
         colorPaint.setColor(colors[0]);
         canvas.drawCircle(cx, cy, tightwidth / 2, colorPaint);
     }
 
+
+    /**
+     * Glyph measurements the logo is drawn from. They only depend on the typeface and text size
+     * of the paint so they are measured once per pair and shared by every span.
+     */
+    static final class Metrics {
+
+        private static final Metrics[] cache = new Metrics[4];
+        private static int next;
+
+        final Typeface typeface;
+        final float size;
+
+        final float xheight;
+        final float tightwidth;
+
+        final int totalwidth;
+        final int totalheight;
+
+        private Metrics(Paint paint) {
+
+            typeface = paint.getTypeface();
+            size = paint.getTextSize();
+
+            Rect rect = new Rect();
+
+            String i = "i", o = "o";
+
+            paint.getTextBounds(o, 0, 1, rect);
+            xheight = rect.height();
+
+            paint.getTextBounds(i, 0, 1, rect);
+
+            // Reducing width slightly (-1) because it looks better
+            // Remove this decrement to see the difference
+            tightwidth = rect.width() - 1;
+            totalheight = rect.height();
+
+            totalwidth = (int) paint.measureText(i);
+        }
+
+        static Metrics of(Paint paint) {
+
+            Typeface typeface = paint.getTypeface();
+            float size = paint.getTextSize();
+
+            // Entries are immutable so a racing reader sees either an old or a new entry, the
+            // worst case being the same metrics measured twice
+            Metrics[] entries = cache;
+
+            for (Metrics metrics : entries) {
+                if (metrics != null && metrics.typeface == typeface && metrics.size == size) {
+                    return metrics;
+                }
+            }
+
+            Metrics metrics = new Metrics(paint);
+
+            synchronized (cache) {
+                cache[next] = metrics;
+                next = (next + 1) % cache.length;
+            }
+
+            return metrics;
+        }
+    }
 }